@@ -0,0 +1,68 @@
+package com.jtelegram.ext.benchmarks.datepicker;
+
+import com.jtelegram.ext.datepicker.callback.DatePickerCallback;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallbackCodec;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallbackDecoder;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonType;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures encoding and decoding callback data with both built-in codecs.
+ *
+ * @author Nick Robson
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CallbackBenchmark {
+
+    private final DatePickerCallback callback = new DatePickerCallback();
+    private long epochDay;
+    private String legacyData;
+    private String compactData;
+
+    @Setup
+    public void setup() {
+        epochDay = LocalDate.of(2018, 11, 12).toEpochDay();
+        legacyData = DatePickerCallbackCodec.legacy().encode(DatePickerButtonType.SELECT_DATE, epochDay, Locale.US);
+        compactData = DatePickerCallbackCodec.compact().encode(DatePickerButtonType.SELECT_DATE, epochDay, Locale.US);
+    }
+
+    @Benchmark
+    public String encodeLegacy() {
+        return DatePickerCallbackCodec.legacy().encode(DatePickerButtonType.SELECT_DATE, epochDay, Locale.US);
+    }
+
+    @Benchmark
+    public String encodeCompact() {
+        return DatePickerCallbackCodec.compact().encode(DatePickerButtonType.SELECT_DATE, epochDay, Locale.US);
+    }
+
+    @Benchmark
+    public long decodeLegacy() {
+        DatePickerCallbackDecoder.decode(legacyData, callback);
+        return callback.getEpochDay();
+    }
+
+    @Benchmark
+    public long decodeCompact() {
+        DatePickerCallbackDecoder.decode(compactData, callback);
+        return callback.getEpochDay();
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.jtelegram.ext.benchmarks.datepicker;
+
+import com.jtelegram.api.TelegramBot;
+import com.jtelegram.api.TelegramBotRegistry;
+import com.jtelegram.api.menu.MenuRow;
+import com.jtelegram.api.update.PollingUpdateProvider;
+import com.jtelegram.ext.datepicker.DatePickerExtension;
+import com.jtelegram.ext.datepicker.menu.DatePickerMenu;
+import com.jtelegram.ext.datepicker.picker.DatePickerOptions;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link DatePickerMenu#getRows()}, which runs for every edit of a menu.
+ *
+ * @author Nick Robson
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MenuBenchmark {
+
+    @Param({ "en-US", "sv-SE" })
+    public String locale;
+
+    private DatePickerMenu menu;
+
+    @Setup
+    public void setup() {
+        LocalDate today = LocalDate.of(2018, 11, 12);
+        menu = DatePickerMenu.builder()
+                .bot(benchmarkBot())
+                .datePicker(DatePickerExtension.forLocale(Locale.forLanguageTag(locale)))
+                .datePickerOptions(DatePickerOptions.builder().dateHighlightedPredicate(today.plusDays(3)::isEqual).build())
+                .selectedDate(today)
+                .build();
+    }
+
+    @Benchmark
+    public List<MenuRow> getRows() {
+        return menu.getRows();
+    }
+
+    // rendering never talks to Telegram, so the menu only needs a bot that was never registered or connected
+    static TelegramBot benchmarkBot() {
+        return new TelegramBot(TelegramBotRegistry.builder().updateProvider(new PollingUpdateProvider()).build(), "benchmark");
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.jtelegram.ext.benchmarks.datepicker;
+
+import com.jtelegram.api.inline.keyboard.InlineKeyboardMarkup;
+import com.jtelegram.ext.datepicker.DatePickerExtension;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallbackCodec;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerKeyboard;
+import com.jtelegram.ext.datepicker.keyboard.PackedDatePickerKeyboard;
+import com.jtelegram.ext.datepicker.picker.DatePicker;
+import com.jtelegram.ext.datepicker.picker.DatePickerOptions;
+import com.jtelegram.ext.datepicker.picker.ChronologyDatePicker;
+import com.jtelegram.ext.datepicker.picker.MonthLayoutCache;
+import java.time.LocalDate;
+import java.time.chrono.Chronology;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures rendering a month with {@link DatePicker#toKeyboard(LocalDate, DatePickerOptions)},
+ * and converting it with {@link DatePickerKeyboard#toInline(DatePickerCallbackCodec)}
+ * or serializing it with {@link PackedDatePickerKeyboard#toJson(DatePickerCallbackCodec)}.
+ *
+ * @author Nick Robson
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({ "en-US", "sv-SE", "ar-EG", "ja-JP", "ar-SA-u-ca-islamic-umalqura" })
+    public String locale;
+
+    private DatePicker datePicker;
+    private DatePicker uncachedDatePicker;
+    private DatePickerOptions highlightOptions;
+    private DatePickerKeyboard keyboard;
+    private PackedDatePickerKeyboard packedKeyboard;
+    private LocalDate date;
+    private int month;
+
+    @Setup
+    public void setup() {
+        Locale locale = Locale.forLanguageTag(this.locale);
+        date = LocalDate.of(2018, 11, 12);
+        datePicker = DatePickerExtension.forLocale(locale);
+        // a single-entry cache, cycled through two months, so every render builds its layout from scratch
+        uncachedDatePicker = new ChronologyDatePicker(locale, Chronology.ofLocale(locale), new MonthLayoutCache(1));
+        highlightOptions = DatePickerOptions.builder().dateHighlightedPredicate(date::isEqual).build();
+        keyboard = datePicker.toKeyboard(date, highlightOptions);
+        packedKeyboard = datePicker.toPackedKeyboard(date, highlightOptions);
+    }
+
+    @Benchmark
+    public DatePickerKeyboard toKeyboard() {
+        return datePicker.toKeyboard(date);
+    }
+
+    @Benchmark
+    public DatePickerKeyboard toKeyboardHighlighted() {
+        return datePicker.toKeyboard(date, highlightOptions);
+    }
+
+    @Benchmark
+    public PackedDatePickerKeyboard toPackedKeyboardHighlighted() {
+        return datePicker.toPackedKeyboard(date, highlightOptions);
+    }
+
+    @Benchmark
+    public DatePickerKeyboard toKeyboardUncached() {
+        return uncachedDatePicker.toKeyboard(date.plusMonths(month++ & 1), highlightOptions);
+    }
+
+    @Benchmark
+    public InlineKeyboardMarkup toInlineLegacy() {
+        return keyboard.toInline(DatePickerCallbackCodec.legacy());
+    }
+
+    @Benchmark
+    public InlineKeyboardMarkup toInlineCompact() {
+        return keyboard.toInline(DatePickerCallbackCodec.compact());
+    }
+
+    @Benchmark
+    public byte[] toJsonLegacy() {
+        return packedKeyboard.toJson(DatePickerCallbackCodec.legacy());
+    }
+
+    @Benchmark
+    public byte[] toPackedJsonHighlighted() {
+        return datePicker.toPackedKeyboard(date, highlightOptions).toJson(DatePickerCallbackCodec.compact());
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.jtelegram.ext.datepicker;
+
+import com.jtelegram.api.inline.keyboard.InlineKeyboardMarkup;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallbackCodec;
+import com.jtelegram.ext.datepicker.picker.DatePicker;
+import com.jtelegram.ext.datepicker.picker.DatePickerOptions;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Renders calendars for many recipients at once, e.g. when broadcasting a calendar to a large number of chats.
+ *
+ * Requests with the same locale, month (in the locale's calendar) and options (compared by identity, so reuse one options instance per
+ * campaign) are only rendered once, and every recipient of that render shares the same
+ * {@link InlineKeyboardMarkup}, which therefore must not be modified. The unique renders are split between the
+ * workers of a fork-join pool.
+ *
+ * @author Nick Robson
+ */
+public class DatePickerBatchRenderer {
+
+    private static final DatePickerOptions DEFAULT_OPTIONS = DatePickerOptions.builder().build();
+    // renders are a few microseconds each, so smaller batches aren't worth forking
+    private static final int RENDERS_PER_TASK = 16;
+
+    @Nonnull
+    private final Function<Locale, DatePicker> datePickers;
+
+    // null to pick one per locale
+    @Nullable
+    private final DatePickerCallbackCodec codec;
+
+    @Nonnull
+    private final ForkJoinPool pool;
+
+    @Builder
+    protected DatePickerBatchRenderer(
+            @Nullable Function<Locale, DatePicker> datePickers,
+            @Nullable DatePickerCallbackCodec codec,
+            @Nullable ForkJoinPool pool) {
+        this.datePickers = datePickers != null ? datePickers : DatePickerExtension::forLocale;
+        this.codec = codec;
+        this.pool = pool != null ? pool : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * One recipient's calendar.
+     *
+     * @param <K> the type identifying recipients, e.g. chat ids
+     */
+    @Value(staticConstructor = "of")
+    public static class Request<K> {
+        @Nonnull K recipient;
+        @Nonnull Locale locale;
+        // any date in the month to show
+        @Nonnull LocalDate month;
+        @Nullable DatePickerOptions options;
+    }
+
+    /**
+     * Renders a calendar for every request.
+     *
+     * @param requests the requests; if a recipient appears more than once, its last request wins
+     * @param <K> the type identifying recipients
+     * @return the keyboard for each recipient, in the order the recipients first appear in the requests
+     */
+    @Nonnull
+    public <K> Map<K, InlineKeyboardMarkup> render(@Nonnull Collection<Request<K>> requests) {
+        // dedupe first, so identical renders aren't even scheduled
+        Map<RenderKey, Integer> unique = new HashMap<>();
+        List<RenderKey> uniqueKeys = new ArrayList<>();
+        Map<Locale, Locale> canonical = new HashMap<>();
+        Map<Locale, DatePicker> pickers = new HashMap<>();
+        int[] renders = new int[requests.size()];
+        int i = 0;
+        for (Request<K> request : requests) {
+            Locale locale = canonical.computeIfAbsent(request.getLocale(), DatePickerRegistry::canonicalize);
+            DatePicker datePicker = pickers.computeIfAbsent(locale, datePickers);
+            // months needn't be ISO months, so they're identified by their first day
+            RenderKey key = new RenderKey(
+                    datePicker,
+                    datePicker.getFirstDayOfMonth(request.getMonth()),
+                    request.getOptions() != null ? request.getOptions() : DEFAULT_OPTIONS
+            );
+            Integer render = unique.get(key);
+            if (render == null) {
+                render = uniqueKeys.size();
+                unique.put(key, render);
+                uniqueKeys.add(key);
+            }
+            renders[i++] = render;
+        }
+
+        InlineKeyboardMarkup[] rendered = new InlineKeyboardMarkup[uniqueKeys.size()];
+        pool.invoke(new RenderTask(uniqueKeys.toArray(new RenderKey[0]), rendered, 0, rendered.length));
+
+        // a recipient that appears again keeps its first position, but takes the later keyboard
+        Map<K, InlineKeyboardMarkup> keyboards = new LinkedHashMap<>(requests.size() * 2);
+        i = 0;
+        for (Request<K> request : requests) {
+            keyboards.put(request.getRecipient(), rendered[renders[i++]]);
+        }
+        return keyboards;
+    }
+
+    @Nonnull
+    private InlineKeyboardMarkup render(@Nonnull RenderKey key) {
+        DatePicker datePicker = key.getDatePicker();
+        return datePicker.toPackedKeyboard(key.getFirstDay(), key.getOptions())
+                .toInline(codec != null ? codec : DatePickerCallbackCodec.forLocale(datePicker.getLocale()));
+    }
+
+    /**
+     * Renders a range of keys, splitting it in half until it's small enough to render directly.
+     */
+    private class RenderTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        @Nonnull
+        private final RenderKey[] keys;
+
+        @Nonnull
+        private final InlineKeyboardMarkup[] rendered;
+
+        private final int from;
+        private final int to;
+
+        RenderTask(@Nonnull RenderKey[] keys, @Nonnull InlineKeyboardMarkup[] rendered, int from, int to) {
+            this.keys = keys;
+            this.rendered = rendered;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= RENDERS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    rendered[i] = render(keys[i]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RenderTask(keys, rendered, from, middle), new RenderTask(keys, rendered, middle, to));
+        }
+
+    }
+
+    // pickers and options have no equals, so they're compared by identity
+    @Value
+    private static class RenderKey {
+        DatePicker datePicker;
+        LocalDate firstDay;
+        DatePickerOptions options;
+    }
+
+}
@@ -1,7 +1,9 @@
 package com.jtelegram.ext.datepicker;
 
+import com.jtelegram.ext.datepicker.metrics.DatePickerMetrics;
 import com.jtelegram.ext.datepicker.picker.DatePicker;
-import com.jtelegram.ext.datepicker.picker.GregorianDatePicker;
+import com.jtelegram.ext.datepicker.picker.MonthLayoutSnapshot;
+import java.time.YearMonth;
 import java.util.Locale;
 import javax.annotation.Nonnull;
 
@@ -12,11 +14,62 @@ public class DatePickerExtension {
 
     private DatePickerExtension() {}
 
+    /**
+     * Gets the shared date picker for a locale.
+     *
+     * Pickers are immutable and interned in {@link DatePickerRegistry#getDefault()}, so calling this per update is cheap.
+     *
+     * @param locale the locale
+     * @return the date picker
+     */
     @Nonnull
     public static DatePicker forLocale(@Nonnull Locale locale) {
-        // currently only supports Gregorian calendars
-        // probably won't support others, so we'll see if anyone wants others
-        return new GregorianDatePicker(locale);
+        return DatePickerRegistry.getDefault().forLocale(locale);
+    }
+
+    /**
+     * Creates the shared date pickers for the given locales ahead of time, e.g. at startup.
+     *
+     * @param locales the locales
+     */
+    public static void register(@Nonnull Locale... locales) {
+        DatePickerRegistry.getDefault().register(locales);
+    }
+
+    /**
+     * Creates the shared date pickers for the given locales, and renders the months around the current one,
+     * so that calendars are served at full speed as soon as the bot starts.
+     *
+     * Combine with a {@link MonthLayoutSnapshot} to skip formatting the months as well.
+     *
+     * @param months the number of months either side of the current one to render, e.g. 12
+     * @param locales the locales
+     */
+    public static void prewarm(int months, @Nonnull Locale... locales) {
+        if (months < 0) {
+            throw new IllegalArgumentException("months cannot be negative");
+        }
+        YearMonth now = YearMonth.now();
+        DatePickerRegistry.getDefault().prewarm(now.minusMonths(months), now.plusMonths(months), locales);
+    }
+
+    /**
+     * @return the metrics used by anything that wasn't given its own
+     * @see DatePickerMetrics#getDefault()
+     */
+    @Nonnull
+    public static DatePickerMetrics getMetrics() {
+        return DatePickerMetrics.getDefault();
+    }
+
+    /**
+     * Sets the metrics used by anything that wasn't given its own.
+     *
+     * @param metrics the metrics, or {@link DatePickerMetrics#NOOP} to stop recording
+     * @see DatePickerMetrics#setDefault(DatePickerMetrics)
+     */
+    public static void setMetrics(@Nonnull DatePickerMetrics metrics) {
+        DatePickerMetrics.setDefault(metrics);
     }
 
 }
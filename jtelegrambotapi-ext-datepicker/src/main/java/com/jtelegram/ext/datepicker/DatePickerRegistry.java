@@ -0,0 +1,174 @@
+package com.jtelegram.ext.datepicker;
+
+import com.jtelegram.ext.datepicker.picker.ChronologyDatePicker;
+import com.jtelegram.ext.datepicker.picker.DatePicker;
+import java.time.YearMonth;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.annotation.Nonnull;
+import lombok.Getter;
+
+/**
+ * A thread-safe registry handing out one shared {@link DatePicker} per locale.
+ *
+ * Locales are canonicalized through their language tag before lookup, so {@code Locale.forLanguageTag("EN-us")}
+ * and {@link Locale#US} share a picker. Once the registry holds {@link #getMaximumSize()} pickers, unknown locales
+ * get a fresh picker that isn't retained, which keeps user-supplied language codes from growing it without bound.
+ *
+ * By default, locales asking for a calendar, e.g. {@code th-TH-u-ca-buddhist}, get a picker for that calendar,
+ * see {@link ChronologyDatePicker#of(Locale)}.
+ *
+ * @author Nick Robson
+ */
+public final class DatePickerRegistry {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+    public static final int UNBOUNDED = -1;
+
+    private static final DatePickerRegistry DEFAULT = new DatePickerRegistry(DEFAULT_MAXIMUM_SIZE);
+
+    @Getter
+    private final int maximumSize;
+
+    @Nonnull
+    private final Function<Locale, DatePicker> factory;
+
+    @Nonnull
+    private final ConcurrentMap<Locale, DatePicker> pickers = new ConcurrentHashMap<>();
+
+    // the number of pickers added, reserved before each is created so concurrent lookups can't overshoot the cap
+    @Nonnull
+    private final AtomicInteger retained = new AtomicInteger();
+
+    public DatePickerRegistry() {
+        this(UNBOUNDED);
+    }
+
+    public DatePickerRegistry(int maximumSize) {
+        this(maximumSize, ChronologyDatePicker::of);
+    }
+
+    /**
+     * @param maximumSize the most pickers to retain, or {@link #UNBOUNDED}
+     * @param factory creates the picker for a canonical locale
+     */
+    public DatePickerRegistry(int maximumSize, @Nonnull Function<Locale, DatePicker> factory) {
+        if (maximumSize < 0 && maximumSize != UNBOUNDED) {
+            throw new IllegalArgumentException("maximumSize must be non-negative or UNBOUNDED");
+        }
+        this.maximumSize = maximumSize;
+        this.factory = Objects.requireNonNull(factory, "factory cannot be null");
+    }
+
+    /**
+     * @return the registry used by {@link DatePickerExtension#forLocale(Locale)}
+     */
+    @Nonnull
+    public static DatePickerRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Gets the shared picker for a locale, creating it if needed.
+     *
+     * @param locale the locale
+     * @return the shared picker, or an unshared one if the registry is full
+     */
+    @Nonnull
+    public DatePicker forLocale(@Nonnull Locale locale) {
+        Objects.requireNonNull(locale, "locale cannot be null");
+
+        // most locales are already canonical, so try without allocating first
+        DatePicker picker = pickers.get(locale);
+        if (picker != null) {
+            return picker;
+        }
+
+        Locale canonical = canonicalize(locale);
+        picker = pickers.get(canonical);
+        if (picker != null) {
+            return picker;
+        }
+        picker = pickers.computeIfAbsent(canonical, key -> reserve() ? retain(key) : null);
+        return picker != null ? picker : factory.apply(canonical);
+    }
+
+    /**
+     * Creates and retains pickers for the given locales ahead of time, ignoring the size cap.
+     *
+     * @param locales the locales to register
+     */
+    public void register(@Nonnull Locale... locales) {
+        for (Locale locale : locales) {
+            pickers.computeIfAbsent(canonicalize(locale), this::retainUnreserved);
+        }
+    }
+
+    /**
+     * Registers pickers for the given locales, and renders a range of months with each of them.
+     *
+     * @param from the first month, inclusive
+     * @param to the last month, inclusive
+     * @param locales the locales to register
+     * @see DatePicker#prewarm(YearMonth, YearMonth)
+     */
+    public void prewarm(@Nonnull YearMonth from, @Nonnull YearMonth to, @Nonnull Locale... locales) {
+        for (Locale locale : locales) {
+            pickers.computeIfAbsent(canonicalize(locale), this::retainUnreserved).prewarm(from, to);
+        }
+    }
+
+    public boolean isRegistered(@Nonnull Locale locale) {
+        return pickers.containsKey(canonicalize(locale));
+    }
+
+    public int size() {
+        return pickers.size();
+    }
+
+    /**
+     * Reserves a slot for a new picker, if the registry isn't full.
+     *
+     * @return whether a slot was reserved
+     */
+    private boolean reserve() {
+        while (true) {
+            int count = retained.get();
+            if (maximumSize != UNBOUNDED && count >= maximumSize) {
+                return false;
+            }
+            if (retained.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    @Nonnull
+    private DatePicker retainUnreserved(@Nonnull Locale locale) {
+        retained.incrementAndGet();
+        return retain(locale);
+    }
+
+    /**
+     * Creates the picker for a locale whose slot has been reserved, giving the slot back if that fails.
+     */
+    @Nonnull
+    private DatePicker retain(@Nonnull Locale locale) {
+        try {
+            return Objects.requireNonNull(factory.apply(locale), "factory returned null");
+        } catch (RuntimeException | Error ex) {
+            retained.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    @Nonnull
+    public static Locale canonicalize(@Nonnull Locale locale) {
+        return Locale.forLanguageTag(locale.toLanguageTag());
+    }
+
+}
@@ -0,0 +1,298 @@
+package com.jtelegram.ext.datepicker.availability;
+
+import com.jtelegram.ext.datepicker.metrics.DatePickerMetrics;
+import com.jtelegram.ext.datepicker.picker.DatePickerOptions;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Caches month availability from a {@link DateAvailabilityProvider}, so calendars can be rendered without waiting on it.
+ *
+ * Each month is loaded at most once at a time, and kept for the TTL after it loads. A month that fails to load is
+ * retried once the shorter failure TTL has passed, so a failing provider isn't called on every render. Once a month
+ * expires, the next lookup starts loading it again, while {@link #getNow(YearMonth)} keeps answering with the last
+ * availability that loaded in the meantime. Once the cache holds its maximum number of months, the least recently
+ * used one is dropped. Failed loads are reported to {@link DatePickerMetrics#getDefault()}.
+ *
+ * {@link #prefetchAdjacent(YearMonth)} loads the months either side of the one on screen, so that paging through
+ * the calendar finds them already loaded.
+ *
+ * Months are ISO months, which a month of another calendar may straddle, so there are also methods taking
+ * a range of dates, which cover every month the range overlaps.
+ *
+ * @author Nick Robson
+ */
+public class DateAvailabilityCache {
+
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+    public static final Duration DEFAULT_FAILURE_TTL = Duration.ofSeconds(10);
+    public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+    @Nonnull
+    private final DateAvailabilityProvider provider;
+
+    @Getter
+    @Nonnull
+    private final Duration ttl;
+
+    @Getter
+    @Nonnull
+    private final Duration failureTtl;
+
+    @Getter
+    private final int maximumSize;
+
+    // access-ordered, so the least recently used month comes first
+    @Nonnull
+    private final Map<YearMonth, Entry> entries;
+
+    @Builder
+    protected DateAvailabilityCache(@Nonnull DateAvailabilityProvider provider,
+                                    @Nullable Duration ttl,
+                                    @Nullable Duration failureTtl,
+                                    @Nullable Integer maximumSize) {
+        if (ttl != null && (ttl.isNegative() || ttl.isZero())) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        if (failureTtl != null && failureTtl.isNegative()) {
+            throw new IllegalArgumentException("failureTtl cannot be negative");
+        }
+        if (maximumSize != null && maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.provider = Objects.requireNonNull(provider, "provider cannot be null");
+        this.ttl = ttl != null ? ttl : DEFAULT_TTL;
+        this.failureTtl = failureTtl != null ? failureTtl : DEFAULT_FAILURE_TTL;
+        this.maximumSize = maximumSize != null ? maximumSize : DEFAULT_MAXIMUM_SIZE;
+        this.entries = new LinkedHashMap<YearMonth, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<YearMonth, Entry> eldest) {
+                return size() > DateAvailabilityCache.this.maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Gets the availability of a month, loading it if it isn't cached or has expired.
+     *
+     * @param month the month
+     * @return the availability, which may still be loading
+     */
+    @Nonnull
+    public CompletableFuture<MonthAvailability> get(@Nonnull YearMonth month) {
+        return entry(month).future;
+    }
+
+    /**
+     * Gets the availability of a month without waiting, starting to load it if it isn't cached or has expired.
+     *
+     * @param month the month
+     * @return the most recently loaded availability, even if it's being reloaded, or null if it has never loaded
+     */
+    @Nullable
+    public MonthAvailability getNow(@Nonnull YearMonth month) {
+        return entry(month).getValue();
+    }
+
+    /**
+     * Starts loading the months before and after a month, unless they're already cached.
+     *
+     * @param month the month on screen
+     */
+    public void prefetchAdjacent(@Nonnull YearMonth month) {
+        // the first and last representable months only have one neighbour
+        try {
+            entry(month.minusMonths(1));
+        } catch (DateTimeException ignored) {
+        }
+        try {
+            entry(month.plusMonths(1));
+        } catch (DateTimeException ignored) {
+        }
+    }
+
+    /**
+     * Gets the availability of every month overlapping a range of dates, loading any that aren't cached or have expired.
+     *
+     * @param from the first date, inclusive
+     * @param to the last date, inclusive
+     * @return completes once every month has loaded, or fails if any of them failed to
+     */
+    @Nonnull
+    public CompletableFuture<Void> get(@Nonnull LocalDate from, @Nonnull LocalDate to) {
+        YearMonth first = YearMonth.from(from);
+        YearMonth last = YearMonth.from(to);
+        if (first.equals(last)) {
+            return get(first).thenApply(ignored -> null);
+        }
+        List<CompletableFuture<MonthAvailability>> futures = new ArrayList<>(2);
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            futures.add(get(month));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Checks whether every month overlapping a range of dates has loaded, starting to load any that aren't cached
+     * or have expired.
+     *
+     * @param from the first date, inclusive
+     * @param to the last date, inclusive
+     * @return true if every month has loaded at least once, even if it's being reloaded
+     */
+    public boolean isLoaded(@Nonnull LocalDate from, @Nonnull LocalDate to) {
+        boolean loaded = true;
+        for (YearMonth month = YearMonth.from(from), last = YearMonth.from(to); !month.isAfter(last); month = month.plusMonths(1)) {
+            // every month is looked up, so they all start loading at once
+            loaded &= getNow(month) != null;
+        }
+        return loaded;
+    }
+
+    /**
+     * Adds the availability of every month overlapping a range of dates to some options, without waiting.
+     * Starts loading any month that isn't cached or has expired.
+     *
+     * @param options the options to render with
+     * @param from the first date, inclusive
+     * @param to the last date, inclusive
+     * @return the options, additionally highlighting and disabling the dates of every month that has loaded
+     */
+    @Nonnull
+    public DatePickerOptions applyNow(@Nonnull DatePickerOptions options, @Nonnull LocalDate from, @Nonnull LocalDate to) {
+        for (YearMonth month = YearMonth.from(from), last = YearMonth.from(to); !month.isAfter(last); month = month.plusMonths(1)) {
+            MonthAvailability loaded = getNow(month);
+            if (loaded != null) {
+                options = loaded.apply(options);
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Starts loading the months before and after a range of dates, unless they're already cached.
+     *
+     * @param from the first date on screen
+     * @param to the last date on screen
+     */
+    public void prefetchAdjacent(@Nonnull LocalDate from, @Nonnull LocalDate to) {
+        try {
+            entry(YearMonth.from(from).minusMonths(1));
+        } catch (DateTimeException ignored) {
+        }
+        try {
+            entry(YearMonth.from(to).plusMonths(1));
+        } catch (DateTimeException ignored) {
+        }
+    }
+
+    /**
+     * Drops a month, e.g. after a booking changes it, so the next lookup loads it again.
+     *
+     * @param month the month
+     */
+    public void invalidate(@Nonnull YearMonth month) {
+        synchronized (entries) {
+            entries.remove(month);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Nonnull
+    private Entry entry(@Nonnull YearMonth month) {
+        long now = System.nanoTime();
+        Entry entry;
+        synchronized (entries) {
+            Entry cached = entries.get(month);
+            if (cached != null && !cached.isExpired(now, ttl.toNanos(), failureTtl.toNanos())) {
+                return cached;
+            }
+            entry = new Entry(cached != null ? cached.getValue() : null);
+            entries.put(month, entry);
+        }
+
+        // the provider is called outside of the lock, as it may complete synchronously
+        CompletionStage<MonthAvailability> loading;
+        try {
+            loading = provider.load(month);
+        } catch (RuntimeException ex) {
+            loading = failed(ex);
+        }
+        loading.whenComplete((availability, error) -> {
+            if (error == null && availability == null) {
+                error = new NullPointerException("provider completed with null for " + month);
+            }
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                DatePickerMetrics.getDefault().onError(cause);
+                entry.loadedAt = System.nanoTime();
+                entry.future.completeExceptionally(cause);
+            } else {
+                entry.loadedAt = System.nanoTime();
+                entry.future.complete(availability);
+            }
+        });
+        return entry;
+    }
+
+    @Nonnull
+    private static <T> CompletionStage<T> failed(@Nonnull Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    private static final class Entry {
+
+        @Nonnull
+        final CompletableFuture<MonthAvailability> future = new CompletableFuture<>();
+
+        // what to answer with while the month is being reloaded
+        @Nullable
+        final MonthAvailability previous;
+
+        // when the load completed, successfully or not
+        volatile long loadedAt;
+
+        Entry(@Nullable MonthAvailability previous) {
+            this.previous = previous;
+        }
+
+        // loads in progress never expire, so a month is only loaded once at a time
+        boolean isExpired(long now, long ttl, long failureTtl) {
+            return future.isDone() && now - loadedAt >= (future.isCompletedExceptionally() ? failureTtl : ttl);
+        }
+
+        @Nullable
+        MonthAvailability getValue() {
+            return future.isDone() && !future.isCompletedExceptionally() ? future.join() : previous;
+        }
+
+    }
+
+}
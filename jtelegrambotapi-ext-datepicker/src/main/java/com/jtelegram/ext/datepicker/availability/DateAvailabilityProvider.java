@@ -0,0 +1,28 @@
+package com.jtelegram.ext.datepicker.availability;
+
+import java.time.YearMonth;
+import java.util.concurrent.CompletionStage;
+import javax.annotation.Nonnull;
+
+/**
+ * Loads which dates of a month are available, e.g. from a booking backend.
+ *
+ * Providers are asked for a whole month at a time, and only through a {@link DateAvailabilityCache},
+ * so they can be as slow as the backend they sit in front of without ever holding up a render.
+ *
+ * @author Nick Robson
+ * @see InMemoryDateAvailabilityProvider
+ */
+@FunctionalInterface
+public interface DateAvailabilityProvider {
+
+    /**
+     * Starts loading the availability of a month. Failures should complete the stage exceptionally rather than throw.
+     *
+     * @param month the month
+     * @return the availability of the month, never completed with null
+     */
+    @Nonnull
+    CompletionStage<MonthAvailability> load(@Nonnull YearMonth month);
+
+}
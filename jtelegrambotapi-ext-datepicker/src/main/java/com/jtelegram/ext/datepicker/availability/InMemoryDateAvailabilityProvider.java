@@ -0,0 +1,62 @@
+package com.jtelegram.ext.datepicker.availability;
+
+import java.time.YearMonth;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+
+/**
+ * A {@link DateAvailabilityProvider} answering straight from memory, for tests and bots with a fixed schedule.
+ *
+ * Months that were never set are empty. Loads are counted, which lets tests check when the cache reaches the provider.
+ *
+ * @author Nick Robson
+ */
+public class InMemoryDateAvailabilityProvider implements DateAvailabilityProvider {
+
+    @Nonnull
+    private final ConcurrentMap<YearMonth, MonthAvailability> months = new ConcurrentHashMap<>();
+
+    @Nonnull
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    /**
+     * Sets the availability of a month, replacing any set before.
+     * Caches that already loaded the month keep their copy until it expires or is invalidated.
+     *
+     * @param availability the availability
+     * @return this provider
+     */
+    @Nonnull
+    public InMemoryDateAvailabilityProvider put(@Nonnull MonthAvailability availability) {
+        months.put(Objects.requireNonNull(availability, "availability cannot be null").getMonth(), availability);
+        return this;
+    }
+
+    /**
+     * @param month the month to reset to empty
+     */
+    public void remove(@Nonnull YearMonth month) {
+        months.remove(month);
+    }
+
+    /**
+     * @return the number of times any month has been loaded
+     */
+    public int getLoadCount() {
+        return loadCount.get();
+    }
+
+    @Nonnull
+    @Override
+    public CompletionStage<MonthAvailability> load(@Nonnull YearMonth month) {
+        loadCount.incrementAndGet();
+        MonthAvailability availability = months.get(month);
+        return CompletableFuture.completedFuture(availability != null ? availability : MonthAvailability.empty(month));
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.jtelegram.ext.datepicker.availability;
+
+import com.jtelegram.ext.datepicker.picker.DatePickerOptions;
+import com.jtelegram.ext.datepicker.picker.EpochDaySet;
+import java.time.YearMonth;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * The dates of one month to highlight and disable, as loaded by a {@link DateAvailabilityProvider}.
+ *
+ * Only dates within the month are applied, so the sets may be shared between months.
+ *
+ * @author Nick Robson
+ */
+@Value
+public class MonthAvailability {
+
+    @Nonnull
+    YearMonth month;
+
+    @Nullable
+    EpochDaySet highlightedDates;
+
+    @Nullable
+    EpochDaySet disabledDates;
+
+    @Builder
+    protected MonthAvailability(@Nonnull YearMonth month, @Nullable EpochDaySet highlightedDates, @Nullable EpochDaySet disabledDates) {
+        this.month = month;
+        this.highlightedDates = highlightedDates;
+        this.disabledDates = disabledDates;
+    }
+
+    /**
+     * @param month the month
+     * @return the availability of a month with nothing highlighted or disabled
+     */
+    @Nonnull
+    public static MonthAvailability empty(@Nonnull YearMonth month) {
+        return new MonthAvailability(month, null, null);
+    }
+
+    /**
+     * @param options the options to render with
+     * @return the options, additionally highlighting and disabling this month's dates
+     */
+    @Nonnull
+    public DatePickerOptions apply(@Nonnull DatePickerOptions options) {
+        if (highlightedDates == null && disabledDates == null) {
+            return options;
+        }
+        // clipped, so a set shared with other months can't mark their dates when several months are on screen
+        long firstEpochDay = month.atDay(1).toEpochDay();
+        long lastEpochDay = month.atEndOfMonth().toEpochDay();
+        return options.toBuilder()
+                .highlightedDates(EpochDaySet.union(options.getHighlightedDates(), EpochDaySet.within(highlightedDates, firstEpochDay, lastEpochDay)))
+                .disabledDates(EpochDaySet.union(options.getDisabledDates(), EpochDaySet.within(disabledDates, firstEpochDay, lastEpochDay)))
+                .build();
+    }
+
+}
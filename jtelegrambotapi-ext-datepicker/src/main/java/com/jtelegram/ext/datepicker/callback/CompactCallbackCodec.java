@@ -0,0 +1,154 @@
+package com.jtelegram.ext.datepicker.callback;
+
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonType;
+import java.util.Arrays;
+import java.util.Locale;
+import javax.annotation.Nonnull;
+
+/**
+ * A compact callback format: {@code ext:dp:<type><epoch day>.<locale id>}.
+ *
+ * <ul>
+ *     <li>the type is one character, see {@link #typeCode(DatePickerButtonType)}</li>
+ *     <li>the epoch day is zig-zag encoded and written in unpadded, url-safe base 64 (3 characters for present-day dates)</li>
+ *     <li>the locale id is the {@link LocaleCodes packed locale} in the same base 64,
+ *     or {@code ~} followed by the language tag for locales that can't be packed</li>
+ * </ul>
+ *
+ * Labels are always encoded as {@code ext:dp:l}.
+ * Stateless keyboards may append {@code ,<selected epoch day>} to carry the currently selected date,
+ * see {@link #encode(DatePickerButtonType, long, Locale, long)}.
+ * For packable locales the callback data is at most 21 bytes, leaving the rest of Telegram's 64 byte limit for
+ * application-specific fields.
+ *
+ * @author Nick Robson
+ */
+public final class CompactCallbackCodec implements DatePickerCallbackCodec {
+
+    public static final String PREFIX = "ext:dp:";
+
+    public static final char SELECT_DATE = 'd';
+    public static final char GOTO_MONTH = 'm';
+    public static final char LABEL = 'l';
+    public static final char OPEN_MONTH_GRID = 'M';
+    public static final char OPEN_YEAR_GRID = 'Y';
+
+    public static final char LOCALE_ID = '.';
+    public static final char LOCALE_TAG = '~';
+    public static final char SELECTION = ',';
+
+    public static final CompactCallbackCodec INSTANCE = new CompactCallbackCodec();
+
+    private static final char[] BASE64_DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final byte[] BASE64_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(BASE64_VALUES, (byte) -1);
+        for (int i = 0; i < BASE64_DIGITS.length; i++) {
+            BASE64_VALUES[BASE64_DIGITS[i]] = (byte) i;
+        }
+    }
+
+    private static final String LABEL_DATA = PREFIX + LABEL;
+
+    private CompactCallbackCodec() {}
+
+    @Nonnull
+    @Override
+    public String encode(@Nonnull DatePickerButtonType type, long epochDay, @Nonnull Locale locale) {
+        return encode(type, epochDay, locale, false, 0);
+    }
+
+    /**
+     * Encodes the callback data for a button, along with the date selected when the keyboard was rendered.
+     *
+     * This lets a keyboard be re-rendered from its callback data alone, without keeping any state on the server.
+     *
+     * @param type the type of the button
+     * @param epochDay the date of the button as an epoch day
+     * @param locale the locale of the keyboard the button belongs to
+     * @param selectedEpochDay the selected date as an epoch day
+     * @return the callback data
+     */
+    @Nonnull
+    public String encode(@Nonnull DatePickerButtonType type, long epochDay, @Nonnull Locale locale, long selectedEpochDay) {
+        return encode(type, epochDay, locale, true, selectedEpochDay);
+    }
+
+    @Nonnull
+    private String encode(@Nonnull DatePickerButtonType type, long epochDay, @Nonnull Locale locale, boolean selection, long selectedEpochDay) {
+        if (type == DatePickerButtonType.LABEL) {
+            return LABEL_DATA;
+        }
+
+        StringBuilder builder = new StringBuilder(32).append(PREFIX).append(typeCode(type));
+        appendBase64(builder, zigZag(epochDay));
+        appendLocale(builder, locale);
+        if (selection) {
+            builder.append(SELECTION);
+            appendBase64(builder, zigZag(selectedEpochDay));
+        }
+        if (builder.length() > MAX_CALLBACK_DATA_LENGTH) {
+            throw new IllegalArgumentException("callback data for locale " + locale.toLanguageTag() + " is too long");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @param type the button type
+     * @return the character identifying the type in encoded callback data
+     */
+    public static char typeCode(@Nonnull DatePickerButtonType type) {
+        switch (type) {
+            case SELECT_DATE:
+                return SELECT_DATE;
+            case GOTO_MONTH:
+                return GOTO_MONTH;
+            case LABEL:
+                return LABEL;
+            case OPEN_MONTH_GRID:
+                return OPEN_MONTH_GRID;
+            case OPEN_YEAR_GRID:
+                return OPEN_YEAR_GRID;
+            default:
+                throw new IllegalStateException("unknown button type " + type);
+        }
+    }
+
+    static void appendLocale(@Nonnull StringBuilder builder, @Nonnull Locale locale) {
+        int localeId = LocaleCodes.pack(locale);
+        if (localeId != LocaleCodes.UNPACKABLE) {
+            builder.append(LOCALE_ID);
+            appendBase64(builder, localeId);
+        } else {
+            builder.append(LOCALE_TAG).append(locale.toLanguageTag());
+        }
+    }
+
+    static void appendBase64(@Nonnull StringBuilder builder, long value) {
+        int shift = 60;
+        while (shift > 0 && (value >>> shift) == 0) {
+            shift -= 6;
+        }
+        for (; shift >= 0; shift -= 6) {
+            builder.append(BASE64_DIGITS[(int) (value >>> shift) & 0x3f]);
+        }
+    }
+
+    /**
+     * @param c a character
+     * @return the value of the base 64 digit, or -1 if it isn't one
+     */
+    static int base64Value(char c) {
+        return c < BASE64_VALUES.length ? BASE64_VALUES[c] : -1;
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.jtelegram.ext.datepicker.callback;
+
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonType;
+import java.time.LocalDate;
+import java.util.Locale;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * A decoded date picker callback, held as primitives.
+ *
+ * Instances are mutable and meant to be reused: {@link DatePickerCallbackDecoder#decode(CharSequence, DatePickerCallback)}
+ * overwrites every field, so decoding doesn't allocate. Don't keep a reference to an instance handed to a
+ * {@link DatePickerCallbackHandler} after the handler returns.
+ *
+ * @author Nick Robson
+ */
+@Getter
+public final class DatePickerCallback {
+
+    /**
+     * The type of the button that was pressed, or null if nothing has been decoded.
+     */
+    @Nullable
+    private DatePickerButtonType type;
+
+    /**
+     * The date of the button as an epoch day; the first of the month for {@link DatePickerButtonType#GOTO_MONTH},
+     * and 0 for {@link DatePickerButtonType#LABEL}.
+     */
+    private long epochDay;
+
+    /**
+     * The {@link LocaleCodes packed locale id}, or {@link LocaleCodes#UNPACKABLE}.
+     */
+    private int localeId;
+
+    /**
+     * The index of the locale's language tag in {@link #getSource()}, or -1 if the source carried a packed id.
+     */
+    private int localeStart;
+
+    /**
+     * The index after the end of the locale's language tag in {@link #getSource()}, or -1.
+     */
+    private int localeEnd;
+
+    /**
+     * Whether the callback carried the date selected when its keyboard was rendered.
+     */
+    @Getter(AccessLevel.NONE)
+    private boolean selection;
+
+    /**
+     * The date selected when the keyboard was rendered as an epoch day, if {@link #hasSelection()}.
+     */
+    private long selectedEpochDay;
+
+    /**
+     * The callback data that was decoded.
+     */
+    @Nullable
+    private CharSequence source;
+
+    public DatePickerCallback() {
+        reset();
+    }
+
+    /**
+     * @return the date of the button
+     */
+    @Nonnull
+    public LocalDate getDate() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    public boolean hasSelection() {
+        return selection;
+    }
+
+    /**
+     * @return the date selected when the keyboard was rendered, or null if the callback didn't carry one
+     */
+    @Nullable
+    public LocalDate getSelectedDate() {
+        return selection ? LocalDate.ofEpochDay(selectedEpochDay) : null;
+    }
+
+    /**
+     * @return the locale of the keyboard the button belonged to, or null if the callback didn't carry one
+     */
+    @Nullable
+    public Locale getLocale() {
+        if (localeId != LocaleCodes.UNPACKABLE) {
+            return LocaleCodes.unpack(localeId);
+        }
+        if (source == null || localeStart < 0) {
+            return null;
+        }
+        return Locale.forLanguageTag(source.subSequence(localeStart, localeEnd).toString());
+    }
+
+    void reset() {
+        type = null;
+        epochDay = 0;
+        localeId = LocaleCodes.UNPACKABLE;
+        localeStart = -1;
+        localeEnd = -1;
+        selection = false;
+        selectedEpochDay = 0;
+        source = null;
+    }
+
+    void set(@Nonnull CharSequence source, @Nonnull DatePickerButtonType type, long epochDay) {
+        this.source = source;
+        this.type = type;
+        this.epochDay = epochDay;
+    }
+
+    void setLocale(int localeId, int localeStart, int localeEnd) {
+        this.localeId = localeId;
+        this.localeStart = localeStart;
+        this.localeEnd = localeEnd;
+    }
+
+    void setSelectedEpochDay(long selectedEpochDay) {
+        this.selection = true;
+        this.selectedEpochDay = selectedEpochDay;
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.jtelegram.ext.datepicker.callback;
+
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonType;
+import java.util.Locale;
+import javax.annotation.Nonnull;
+
+/**
+ * Encodes the callback data attached to date picker buttons.
+ *
+ * Implementations must be stateless and thread-safe, as encoded buttons are cached and shared between renders.
+ *
+ * @author Nick Robson
+ */
+public interface DatePickerCallbackCodec {
+
+    /**
+     * The most bytes Telegram accepts as callback data.
+     */
+    int MAX_CALLBACK_DATA_LENGTH = 64;
+
+    /**
+     * Encodes the callback data for a button.
+     *
+     * @param type the type of the button
+     * @param epochDay the date of the button as an epoch day, ignored for {@link DatePickerButtonType#LABEL}
+     * @param locale the locale of the keyboard the button belongs to
+     * @return the callback data
+     */
+    @Nonnull
+    String encode(@Nonnull DatePickerButtonType type, long epochDay, @Nonnull Locale locale);
+
+    /**
+     * Picks the codec for keyboards in a locale when none is given: the legacy codec for compatibility, unless the
+     * locale asks for a calendar other than ISO through its {@code -u-ca-} extension, whose months the legacy format
+     * can't express, in which case the compact codec.
+     *
+     * @param locale the locale of the keyboard
+     * @return the codec
+     */
+    @Nonnull
+    static DatePickerCallbackCodec forLocale(@Nonnull Locale locale) {
+        return LegacyCallbackCodec.supports(locale) ? legacy() : compact();
+    }
+
+    /**
+     * The original format, e.g. {@code ext:datepicker:2018:11:12|en-US}, kept as the default for ISO calendars for
+     * compatibility. It identifies months by their ISO year and month, so it rejects month and grid buttons of
+     * locales with any other calendar.
+     *
+     * @return the legacy codec
+     * @see com.jtelegram.ext.datepicker.picker.DatePicker#CB_SELECT_DAY_FORMAT
+     */
+    @Nonnull
+    static DatePickerCallbackCodec legacy() {
+        return LegacyCallbackCodec.INSTANCE;
+    }
+
+    /**
+     * A compact format, e.g. {@code ext:dp:dItu.VwKz}, which is at most 21 bytes for most locales.
+     *
+     * @return the compact codec
+     * @see CompactCallbackCodec
+     */
+    @Nonnull
+    static DatePickerCallbackCodec compact() {
+        return CompactCallbackCodec.INSTANCE;
+    }
+
+}
@@ -0,0 +1,303 @@
+package com.jtelegram.ext.datepicker.callback;
+
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonType;
+import com.jtelegram.ext.datepicker.picker.DatePicker;
+import java.time.LocalDate;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Decodes the callback data produced by both {@link DatePickerCallbackCodec#legacy()} and
+ * {@link DatePickerCallbackCodec#compact()}.
+ *
+ * Decoding is a single pass over the characters, with no regular expressions, substrings or boxing.
+ *
+ * @author Nick Robson
+ */
+public final class DatePickerCallbackDecoder {
+
+    private static final long MIN_EPOCH_DAY = LocalDate.MIN.toEpochDay();
+    private static final long MAX_EPOCH_DAY = LocalDate.MAX.toEpochDay();
+    private static final long MAX_YEAR = 999_999_999L;
+    private static final long DAYS_0000_TO_1970 = 719_528L;
+
+    private DatePickerCallbackDecoder() {}
+
+    /**
+     * @param data some callback data
+     * @return whether the data looks like it came from a date picker, without fully decoding it
+     */
+    public static boolean isDatePickerCallback(@Nullable CharSequence data) {
+        return data != null && (startsWith(data, DatePicker.CB_PREFIX) || startsWith(data, CompactCallbackCodec.PREFIX));
+    }
+
+    /**
+     * Decodes callback data into a reusable holder.
+     *
+     * @param data the callback data
+     * @param into the holder to decode into; reset if decoding fails
+     * @return true if the data was a valid date picker callback
+     */
+    public static boolean decode(@Nullable CharSequence data, @Nonnull DatePickerCallback into) {
+        into.reset();
+        if (data == null) {
+            return false;
+        }
+        boolean decoded;
+        if (startsWith(data, CompactCallbackCodec.PREFIX)) {
+            decoded = decodeCompact(data, CompactCallbackCodec.PREFIX.length(), into);
+        } else if (startsWith(data, DatePicker.CB_PREFIX)) {
+            decoded = decodeLegacy(data, DatePicker.CB_PREFIX.length(), into);
+        } else {
+            decoded = false;
+        }
+        if (!decoded) {
+            into.reset();
+        }
+        return decoded;
+    }
+
+    // ext:dp:<type><epoch day>(.<locale id>|~<locale tag>)[,<selected epoch day>]
+    private static boolean decodeCompact(@Nonnull CharSequence data, int index, @Nonnull DatePickerCallback into) {
+        int length = data.length();
+        if (index >= length) {
+            return false;
+        }
+        DatePickerButtonType type;
+        switch (data.charAt(index++)) {
+            case CompactCallbackCodec.SELECT_DATE:
+                type = DatePickerButtonType.SELECT_DATE;
+                break;
+            case CompactCallbackCodec.GOTO_MONTH:
+                type = DatePickerButtonType.GOTO_MONTH;
+                break;
+            case CompactCallbackCodec.OPEN_MONTH_GRID:
+                type = DatePickerButtonType.OPEN_MONTH_GRID;
+                break;
+            case CompactCallbackCodec.OPEN_YEAR_GRID:
+                type = DatePickerButtonType.OPEN_YEAR_GRID;
+                break;
+            case CompactCallbackCodec.LABEL:
+                into.set(data, DatePickerButtonType.LABEL, 0);
+                return index == length;
+            default:
+                return false;
+        }
+
+        long value = 0;
+        int digits = 0;
+        for (; index < length; index++, digits++) {
+            int digit = CompactCallbackCodec.base64Value(data.charAt(index));
+            if (digit < 0) {
+                break;
+            }
+            if (digits == 10) {
+                return false;
+            }
+            value = (value << 6) | digit;
+        }
+        long epochDay = CompactCallbackCodec.unZigZag(value);
+        if (digits == 0 || epochDay < MIN_EPOCH_DAY || epochDay > MAX_EPOCH_DAY || index >= length) {
+            return false;
+        }
+        into.set(data, type, epochDay);
+
+        // the selected date, if any, follows the locale
+        int localeEnd = indexOf(data, CompactCallbackCodec.SELECTION, index, length);
+        if (localeEnd != length && !decodeSelection(data, localeEnd + 1, length, into)) {
+            return false;
+        }
+
+        char separator = data.charAt(index++);
+        if (separator == CompactCallbackCodec.LOCALE_TAG) {
+            return decodeLocaleTag(data, index, localeEnd, into);
+        }
+        if (separator != CompactCallbackCodec.LOCALE_ID || index == localeEnd || localeEnd - index > 5) {
+            return false;
+        }
+        int localeId = 0;
+        for (; index < localeEnd; index++) {
+            int digit = CompactCallbackCodec.base64Value(data.charAt(index));
+            if (digit < 0) {
+                return false;
+            }
+            localeId = (localeId << 6) | digit;
+        }
+        into.setLocale(localeId, -1, -1);
+        return true;
+    }
+
+    private static boolean decodeSelection(@Nonnull CharSequence data, int start, int end, @Nonnull DatePickerCallback into) {
+        if (start == end || end - start > 10) {
+            return false;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = CompactCallbackCodec.base64Value(data.charAt(i));
+            if (digit < 0) {
+                return false;
+            }
+            value = (value << 6) | digit;
+        }
+        long epochDay = CompactCallbackCodec.unZigZag(value);
+        if (epochDay < MIN_EPOCH_DAY || epochDay > MAX_EPOCH_DAY) {
+            return false;
+        }
+        into.setSelectedEpochDay(epochDay);
+        return true;
+    }
+
+    // ext:datepicker:<year>:<month>|<locale tag>, ext:datepicker:<year>:<month>:<day>|<locale tag>,
+    // ext:datepicker:months:<year>|<locale tag>, ext:datepicker:years:<year>|<locale tag> or ext:datepicker:
+    private static boolean decodeLegacy(@Nonnull CharSequence data, int index, @Nonnull DatePickerCallback into) {
+        int length = data.length();
+        if (index == length) {
+            into.set(data, DatePickerButtonType.LABEL, 0);
+            return true;
+        }
+
+        // grids only carry a year; they're stored as the 1st of January
+        DatePickerButtonType grid = null;
+        if (startsWith(data, index, LegacyCallbackCodec.MONTH_GRID)) {
+            grid = DatePickerButtonType.OPEN_MONTH_GRID;
+            index += LegacyCallbackCodec.MONTH_GRID.length();
+        } else if (startsWith(data, index, LegacyCallbackCodec.YEAR_GRID)) {
+            grid = DatePickerButtonType.OPEN_YEAR_GRID;
+            index += LegacyCallbackCodec.YEAR_GRID.length();
+        }
+
+        long year = 0, month = 0, day = 1;
+        int field = 0;
+        boolean negative = false;
+        int digits = 0;
+        long value = 0;
+        for (; index < length; index++) {
+            char c = data.charAt(index);
+            if (c == '-' && digits == 0 && field == 0 && !negative) {
+                negative = true;
+            } else if (c >= '0' && c <= '9') {
+                if (++digits > 10) {
+                    return false;
+                }
+                value = value * 10 + (c - '0');
+            } else if (c == ':' || c == '|') {
+                if (digits == 0) {
+                    return false;
+                }
+                switch (field++) {
+                    case 0:
+                        year = negative ? -value : value;
+                        break;
+                    case 1:
+                        month = value;
+                        break;
+                    case 2:
+                        day = value;
+                        break;
+                    default:
+                        return false;
+                }
+                digits = 0;
+                value = 0;
+                if (c == '|') {
+                    break;
+                }
+            } else {
+                return false;
+            }
+        }
+        if (grid != null) {
+            if (index >= length || data.charAt(index) != '|' || field != 1 || year < -MAX_YEAR || year > MAX_YEAR) {
+                return false;
+            }
+            into.set(data, grid, toEpochDay(year, 1, 1));
+            return decodeLocaleTag(data, index + 1, length, into);
+        }
+        if (index >= length || data.charAt(index) != '|' || field < 2 || field > 3) {
+            return false;
+        }
+        if (year < -MAX_YEAR || year > MAX_YEAR || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, (int) month)) {
+            return false;
+        }
+
+        into.set(data, field == 3 ? DatePickerButtonType.SELECT_DATE : DatePickerButtonType.GOTO_MONTH, toEpochDay(year, (int) month, (int) day));
+        return decodeLocaleTag(data, index + 1, length, into);
+    }
+
+    private static boolean decodeLocaleTag(@Nonnull CharSequence data, int start, int end, @Nonnull DatePickerCallback into) {
+        if (start >= end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = data.charAt(i);
+            if (!(c == '-' || (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) {
+                return false;
+            }
+        }
+        into.setLocale(LocaleCodes.pack(data, start, end), start, end);
+        return true;
+    }
+
+    private static int indexOf(@Nonnull CharSequence data, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (data.charAt(i) == c) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static boolean startsWith(@Nonnull CharSequence data, @Nonnull String prefix) {
+        return startsWith(data, 0, prefix);
+    }
+
+    private static boolean startsWith(@Nonnull CharSequence data, int offset, @Nonnull String prefix) {
+        if (data.length() - offset < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (data.charAt(offset + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLeapYear(long year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(long year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // the same arithmetic as LocalDate#toEpochDay, without creating the LocalDate
+    private static long toEpochDay(long year, int month, int day) {
+        long total = 365 * year;
+        if (year >= 0) {
+            total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        } else {
+            total -= year / -4 - year / -100 + year / -400;
+        }
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+}
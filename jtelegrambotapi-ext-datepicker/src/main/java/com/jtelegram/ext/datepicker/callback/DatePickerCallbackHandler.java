@@ -0,0 +1,20 @@
+package com.jtelegram.ext.datepicker.callback;
+
+import com.jtelegram.api.events.inline.keyboard.CallbackQueryEvent;
+import javax.annotation.Nonnull;
+
+/**
+ * Handles a decoded date picker callback routed by a {@link DatePickerCallbackRouter}.
+ *
+ * @author Nick Robson
+ */
+@FunctionalInterface
+public interface DatePickerCallbackHandler {
+
+    /**
+     * @param event the event the callback came from
+     * @param callback the decoded callback, which is reused once this method returns
+     */
+    void handle(@Nonnull CallbackQueryEvent event, @Nonnull DatePickerCallback callback);
+
+}
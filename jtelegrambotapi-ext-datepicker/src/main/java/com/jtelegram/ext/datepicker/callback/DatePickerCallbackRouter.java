@@ -0,0 +1,130 @@
+package com.jtelegram.ext.datepicker.callback;
+
+import com.jtelegram.api.events.inline.keyboard.CallbackQueryEvent;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonType;
+import com.jtelegram.ext.datepicker.metrics.DatePickerMetrics;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Decodes date picker callbacks and dispatches them to the handler registered for their button type.
+ *
+ * Handlers are usually registered once at startup; routing is lock-free and reuses one {@link DatePickerCallback}
+ * per thread, so it doesn't allocate. Only the handler knows whether it accepts a click, so it's up to the handler to
+ * report it to {@link DatePickerMetrics}, as the stateless menu does.
+ *
+ * @author Nick Robson
+ */
+public class DatePickerCallbackRouter {
+
+    private static final ThreadLocal<DatePickerCallback> CALLBACKS = ThreadLocal.withInitial(DatePickerCallback::new);
+
+    @Nonnull
+    private volatile DatePickerCallbackHandler[] handlers = new DatePickerCallbackHandler[DatePickerButtonType.values().length];
+
+    /**
+     * Registers the handler for a button type, replacing any previous one; see {@link #claim(Map)} to avoid that.
+     *
+     * @param type the button type
+     * @param handler the handler, or null to remove it
+     * @return this router
+     */
+    @Nonnull
+    public synchronized DatePickerCallbackRouter on(@Nonnull DatePickerButtonType type, @Nullable DatePickerCallbackHandler handler) {
+        Objects.requireNonNull(type, "type cannot be null");
+        DatePickerCallbackHandler[] handlers = Arrays.copyOf(this.handlers, this.handlers.length);
+        handlers[type.ordinal()] = handler;
+        this.handlers = handlers;
+        return this;
+    }
+
+    /**
+     * Registers handlers for several button types at once, registering none of them if any of the types already has
+     * a handler, so that two menus can't share a router and silently take over each other's clicks.
+     *
+     * @param handlers the handler for each button type
+     * @return this router
+     * @throws IllegalStateException if one of the types already has a handler
+     */
+    @Nonnull
+    public synchronized DatePickerCallbackRouter claim(@Nonnull Map<DatePickerButtonType, DatePickerCallbackHandler> handlers) {
+        DatePickerCallbackHandler[] claimed = Arrays.copyOf(this.handlers, this.handlers.length);
+        for (Map.Entry<DatePickerButtonType, DatePickerCallbackHandler> entry : handlers.entrySet()) {
+            DatePickerButtonType type = Objects.requireNonNull(entry.getKey(), "type cannot be null");
+            if (claimed[type.ordinal()] != null) {
+                throw new IllegalStateException("a handler for " + type + " is already registered");
+            }
+            claimed[type.ordinal()] = Objects.requireNonNull(entry.getValue(), "handler cannot be null");
+        }
+        this.handlers = claimed;
+        return this;
+    }
+
+    @Nonnull
+    public DatePickerCallbackRouter onSelectDate(@Nullable DatePickerCallbackHandler handler) {
+        return on(DatePickerButtonType.SELECT_DATE, handler);
+    }
+
+    @Nonnull
+    public DatePickerCallbackRouter onGotoMonth(@Nullable DatePickerCallbackHandler handler) {
+        return on(DatePickerButtonType.GOTO_MONTH, handler);
+    }
+
+    @Nonnull
+    public DatePickerCallbackRouter onOpenMonthGrid(@Nullable DatePickerCallbackHandler handler) {
+        return on(DatePickerButtonType.OPEN_MONTH_GRID, handler);
+    }
+
+    @Nonnull
+    public DatePickerCallbackRouter onOpenYearGrid(@Nullable DatePickerCallbackHandler handler) {
+        return on(DatePickerButtonType.OPEN_YEAR_GRID, handler);
+    }
+
+    @Nonnull
+    public DatePickerCallbackRouter onLabel(@Nullable DatePickerCallbackHandler handler) {
+        return on(DatePickerButtonType.LABEL, handler);
+    }
+
+    /**
+     * Routes the callback query in an event.
+     *
+     * @param event the event
+     * @return true if the query was a date picker callback with a registered handler
+     */
+    public boolean route(@Nonnull CallbackQueryEvent event) {
+        return route(event, event.getQuery().getData());
+    }
+
+    /**
+     * Routes some callback data.
+     *
+     * @param event the event the data came from
+     * @param data the callback data
+     * @return true if the data was a date picker callback with a registered handler
+     */
+    public boolean route(@Nonnull CallbackQueryEvent event, @Nullable CharSequence data) {
+        if (!DatePickerCallbackDecoder.isDatePickerCallback(data)) {
+            return false;
+        }
+        DatePickerCallback callback = CALLBACKS.get();
+        try {
+            if (!DatePickerCallbackDecoder.decode(data, callback)) {
+                return false;
+            }
+            DatePickerButtonType type = callback.getType();
+            DatePickerCallbackHandler handler = type != null ? handlers[type.ordinal()] : null;
+            if (handler == null) {
+                return false;
+            }
+            handler.handle(event, callback);
+            return true;
+        } finally {
+            // don't keep the callback data reachable from the thread
+            callback.reset();
+        }
+    }
+
+}
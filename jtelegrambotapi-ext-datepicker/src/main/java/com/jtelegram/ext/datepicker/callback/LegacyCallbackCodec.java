@@ -0,0 +1,94 @@
+package com.jtelegram.ext.datepicker.callback;
+
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonType;
+import com.jtelegram.ext.datepicker.picker.DatePicker;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.chrono.Chronology;
+import java.time.chrono.IsoChronology;
+import java.util.Locale;
+import javax.annotation.Nonnull;
+
+/**
+ * Produces the same callback data as {@link DatePicker#CB_SELECT_DAY_FORMAT}, {@link DatePicker#CB_GOTO_MONTH_FORMAT},
+ * {@link DatePicker#CB_OPEN_MONTH_GRID_FORMAT} and {@link DatePicker#CB_OPEN_YEAR_GRID_FORMAT},
+ * without going through {@link String#format(String, Object...)}.
+ *
+ * @author Nick Robson
+ */
+final class LegacyCallbackCodec implements DatePickerCallbackCodec {
+
+    static final String MONTH_GRID = "months:";
+    static final String YEAR_GRID = "years:";
+
+    static final LegacyCallbackCodec INSTANCE = new LegacyCallbackCodec();
+
+    private LegacyCallbackCodec() {}
+
+    /**
+     * @param locale the locale of a keyboard
+     * @return true if the locale's calendar is ISO, so its months are ISO months, which this format can express
+     */
+    static boolean supports(@Nonnull Locale locale) {
+        if (locale.getUnicodeLocaleType("ca") == null) {
+            return true;
+        }
+        try {
+            return Chronology.ofLocale(locale) == IsoChronology.INSTANCE;
+        } catch (DateTimeException ex) {
+            // no picker can be made for an unknown calendar, so there are no months to get wrong
+            return true;
+        }
+    }
+
+    @Nonnull
+    @Override
+    public String encode(@Nonnull DatePickerButtonType type, long epochDay, @Nonnull Locale locale) {
+        switch (type) {
+            case SELECT_DATE: {
+                LocalDate date = LocalDate.ofEpochDay(epochDay);
+                return new StringBuilder(32)
+                        .append(DatePicker.CB_PREFIX)
+                        .append(date.getYear()).append(':')
+                        .append(date.getMonthValue()).append(':')
+                        .append(date.getDayOfMonth()).append('|')
+                        .append(locale.toLanguageTag())
+                        .toString();
+            }
+            case GOTO_MONTH: {
+                checkSupported(type, locale);
+                LocalDate date = LocalDate.ofEpochDay(epochDay);
+                return new StringBuilder(32)
+                        .append(DatePicker.CB_PREFIX)
+                        .append(date.getYear()).append(':')
+                        .append(date.getMonthValue()).append('|')
+                        .append(locale.toLanguageTag())
+                        .toString();
+            }
+            case OPEN_MONTH_GRID:
+            case OPEN_YEAR_GRID: {
+                checkSupported(type, locale);
+                LocalDate date = LocalDate.ofEpochDay(epochDay);
+                return new StringBuilder(32)
+                        .append(DatePicker.CB_PREFIX)
+                        .append(type == DatePickerButtonType.OPEN_MONTH_GRID ? MONTH_GRID : YEAR_GRID)
+                        .append(date.getYear()).append('|')
+                        .append(locale.toLanguageTag())
+                        .toString();
+            }
+            case LABEL:
+                return DatePicker.CB_PREFIX;
+            default:
+                throw new IllegalStateException("unknown button type " + type);
+        }
+    }
+
+    // going to an ISO month would lose track of a month or year in any other calendar, and get stuck
+    private static void checkSupported(@Nonnull DatePickerButtonType type, @Nonnull Locale locale) {
+        if (!supports(locale)) {
+            throw new IllegalArgumentException("the legacy callback format can't express " + type + " buttons in "
+                    + locale.toLanguageTag() + ", use DatePickerCallbackCodec.compact()");
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.jtelegram.ext.datepicker.callback;
+
+import java.util.Locale;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Packs simple locales into stable, non-negative integer ids.
+ *
+ * A locale can be packed when it consists of a 2-3 letter language and an optional 2 letter region,
+ * with no script, variant or extensions; e.g. {@code en}, {@code en-US} or {@code fil-PH}.
+ * Each letter takes 5 bits, so every id fits in 25 bits and is the same on every node and every restart.
+ * The undetermined language ({@code und}, e.g. {@link Locale#ROOT}) packs to an empty language, so the root locale is {@code 0}.
+ *
+ * @author Nick Robson
+ */
+public final class LocaleCodes {
+
+    /**
+     * Returned when a locale can't be packed.
+     */
+    public static final int UNPACKABLE = -1;
+
+    private static final int LETTER_BITS = 5;
+    private static final int LETTER_MASK = (1 << LETTER_BITS) - 1;
+    private static final int REGION_BITS = 2 * LETTER_BITS;
+    private static final int UNDETERMINED = (21 << 2 * LETTER_BITS) | (14 << LETTER_BITS) | 4; // "und"
+
+    private LocaleCodes() {}
+
+    /**
+     * @param locale the locale
+     * @return the packed id, or {@link #UNPACKABLE}
+     */
+    public static int pack(@Nonnull Locale locale) {
+        if (!locale.getScript().isEmpty() || !locale.getVariant().isEmpty() || locale.hasExtensions()) {
+            return UNPACKABLE;
+        }
+        String tag = locale.toLanguageTag();
+        return pack(tag, 0, tag.length());
+    }
+
+    /**
+     * Packs a language tag without allocating, e.g. straight out of callback data.
+     *
+     * @param tag the characters holding the tag
+     * @param start the index of the first character of the tag
+     * @param end the index after the last character of the tag
+     * @return the packed id, or {@link #UNPACKABLE}
+     */
+    public static int pack(@Nonnull CharSequence tag, int start, int end) {
+        int length = end - start;
+        int languageLength;
+        if (length == 2 || length == 3) {
+            languageLength = length;
+        } else if ((length == 5 || length == 6) && tag.charAt(end - 3) == '-') {
+            languageLength = length - 3;
+        } else {
+            return UNPACKABLE;
+        }
+
+        int language = 0;
+        for (int i = 0; i < 3; i++) {
+            int letter = i < languageLength ? letter(tag.charAt(start + i)) : 0;
+            if (letter < 0) {
+                return UNPACKABLE;
+            }
+            language = (language << LETTER_BITS) | letter;
+        }
+        if (language == UNDETERMINED) {
+            language = 0;
+        }
+
+        int region = 0;
+        if (languageLength != length) {
+            for (int i = end - 2; i < end; i++) {
+                int letter = letter(tag.charAt(i));
+                if (letter < 0) {
+                    return UNPACKABLE;
+                }
+                region = (region << LETTER_BITS) | letter;
+            }
+        }
+        return (language << REGION_BITS) | region;
+    }
+
+    /**
+     * @param id a packed id
+     * @return the locale, or null if the id isn't valid
+     */
+    @Nullable
+    public static Locale unpack(int id) {
+        if (id < 0) {
+            return null;
+        }
+        StringBuilder language = new StringBuilder(3);
+        for (int shift = REGION_BITS + 2 * LETTER_BITS; shift >= REGION_BITS; shift -= LETTER_BITS) {
+            int letter = (id >>> shift) & LETTER_MASK;
+            if (letter != 0) {
+                language.append((char) ('a' + letter - 1));
+            }
+        }
+        int region = id & ((1 << REGION_BITS) - 1);
+        if (language.length() == 1 || (region != 0 && (region >>> LETTER_BITS == 0 || (region & LETTER_MASK) == 0))) {
+            return null;
+        }
+        if (region == 0) {
+            return language.length() == 0 ? Locale.ROOT : new Locale(language.toString());
+        }
+        return new Locale(language.toString(), new String(new char[] {
+                (char) ('A' + (region >>> LETTER_BITS) - 1),
+                (char) ('A' + (region & LETTER_MASK) - 1)
+        }));
+    }
+
+    // tags are case-insensitive, so accept either case and map to 1..26
+    private static int letter(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 1;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 1;
+        }
+        return -1;
+    }
+
+}
@@ -1,21 +1,20 @@
 package com.jtelegram.ext.datepicker.keyboard;
 
 import com.jtelegram.api.inline.keyboard.InlineKeyboardButton;
-import com.jtelegram.ext.datepicker.picker.DatePicker;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallbackCodec;
 import java.time.LocalDate;
 import java.util.Locale;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 
 /**
  * @author Nick Robson
  */
 @Getter
-@Builder
-@AllArgsConstructor
 public class DatePickerButton {
 
     @Nullable
@@ -27,38 +26,86 @@ public class DatePickerButton {
     @Nullable
     private final LocalDate date;
 
+    // buttons are shared between renders through cached month layouts,
+    // so remember the last encoding rather than formatting callback data every time
+    @Nullable
+    @Getter(AccessLevel.NONE)
+    private volatile EncodedButton encoded;
+
+    @Builder
+    public DatePickerButton(@Nullable String label, @Nonnull DatePickerButtonType type, @Nullable LocalDate date) {
+        this.label = label;
+        this.type = type;
+        this.date = date;
+    }
+
     @Nonnull
     public String getLabel() {
         return label != null ? label : " ";
     }
 
     public InlineKeyboardButton toInline(Locale locale) {
+        return toInline(locale, DatePickerCallbackCodec.forLocale(locale));
+    }
+
+    public InlineKeyboardButton toInline(@Nonnull Locale locale, @Nonnull DatePickerCallbackCodec codec) {
+        return encode(locale, codec).button;
+    }
+
+    /**
+     * @return this button as UTF-8 encoded JSON, shared between calls, so it must not be modified
+     */
+    @Nonnull
+    byte[] toJson(@Nonnull Locale locale, @Nonnull DatePickerCallbackCodec codec) {
+        EncodedButton encoded = encode(locale, codec);
+        byte[] json = encoded.json;
+        if (json == null) {
+            // racing threads encode the same bytes, so it doesn't matter whose are kept
+            json = KeyboardJson.button(getLabel(), getCallbackData(locale, codec));
+            encoded.json = json;
+        }
+        return json;
+    }
+
+    @Nonnull
+    private EncodedButton encode(@Nonnull Locale locale, @Nonnull DatePickerCallbackCodec codec) {
+        EncodedButton encoded = this.encoded;
+        if (encoded != null && encoded.codec == codec && encoded.locale.equals(locale)) {
+            return encoded;
+        }
+
+        InlineKeyboardButton button = InlineKeyboardButton.builder()
+                .label(getLabel())
+                .callbackData(getCallbackData(locale, codec))
+                .build();
+        encoded = new EncodedButton(codec, locale, button);
+        this.encoded = encoded;
+        return encoded;
+    }
+
+    @Nonnull
+    public String getCallbackData(@Nonnull Locale locale, @Nonnull DatePickerCallbackCodec codec) {
         switch (type) {
-            case SELECT_DATE: {
-                assert date != null;
-                String callbackData = String.format(DatePicker.CB_SELECT_DAY_FORMAT, date.getYear(), date.getMonthValue(), date.getDayOfMonth(), locale.toLanguageTag());
-                return InlineKeyboardButton.builder()
-                        .label(getLabel())
-                        .callbackData(callbackData)
-                        .build();
-            }
-            case GOTO_MONTH: {
+            case SELECT_DATE:
+            case GOTO_MONTH:
+            case OPEN_MONTH_GRID:
+            case OPEN_YEAR_GRID:
                 assert date != null;
-                String callbackData = String.format(DatePicker.CB_GOTO_MONTH_FORMAT, date.getYear(), date.getMonthValue(), locale.toLanguageTag());
-                return InlineKeyboardButton.builder()
-                        .label(getLabel())
-                        .callbackData(callbackData)
-                        .build();
-            }
-            case LABEL: {
-                return InlineKeyboardButton.builder()
-                        .label(getLabel())
-                        .callbackData(DatePicker.CB_PREFIX)
-                        .build();
-            }
+                return codec.encode(type, date.toEpochDay(), locale);
+            case LABEL:
+                return codec.encode(type, 0, locale);
             default:
-                throw new IllegalStateException("type must be SELECT_DATE, GOTO_MONTH, or LABEL");
+                throw new IllegalStateException("unknown button type " + type);
         }
     }
 
+    @RequiredArgsConstructor
+    private static class EncodedButton {
+        private final DatePickerCallbackCodec codec;
+        private final Locale locale;
+        private final InlineKeyboardButton button;
+        // only encoded once asked for, as most keyboards are sent as InlineKeyboardMarkups
+        private volatile byte[] json;
+    }
+
 }
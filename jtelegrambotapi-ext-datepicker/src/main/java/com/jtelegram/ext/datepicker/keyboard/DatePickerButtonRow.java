@@ -1,6 +1,7 @@
 package com.jtelegram.ext.datepicker.keyboard;
 
 import com.jtelegram.api.inline.keyboard.InlineKeyboardRow;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallbackCodec;
 import java.util.List;
 import java.util.Locale;
 import java.util.stream.Collectors;
@@ -23,8 +24,12 @@ public class DatePickerButtonRow {
     private final List<DatePickerButton> buttons;
 
     public InlineKeyboardRow toInline(Locale locale) {
+        return toInline(locale, DatePickerCallbackCodec.forLocale(locale));
+    }
+
+    public InlineKeyboardRow toInline(@Nonnull Locale locale, @Nonnull DatePickerCallbackCodec codec) {
         return InlineKeyboardRow.builder()
-                .buttons(buttons.stream().map(b -> b.toInline(locale)).collect(Collectors.toList()))
+                .buttons(buttons.stream().map(b -> b.toInline(locale, codec)).collect(Collectors.toList()))
                 .build();
     }
 
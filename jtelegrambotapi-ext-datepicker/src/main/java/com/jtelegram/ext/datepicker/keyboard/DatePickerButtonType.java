@@ -18,6 +18,16 @@ public enum DatePickerButtonType {
     /**
      * This button has no click action and is merely a visual label
      */
-    LABEL
+    LABEL,
+
+    /**
+     * This button shows the twelve months of the year of its date, to jump straight to one of them
+     */
+    OPEN_MONTH_GRID,
+
+    /**
+     * This button shows the years around the year of its date, to jump straight to one of them
+     */
+    OPEN_YEAR_GRID
 
 }
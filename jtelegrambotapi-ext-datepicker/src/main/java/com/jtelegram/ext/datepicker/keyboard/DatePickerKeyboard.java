@@ -1,6 +1,7 @@
 package com.jtelegram.ext.datepicker.keyboard;
 
 import com.jtelegram.api.inline.keyboard.InlineKeyboardMarkup;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallbackCodec;
 import java.util.List;
 import java.util.Locale;
 import java.util.stream.Collectors;
@@ -26,9 +27,57 @@ public class DatePickerKeyboard {
     private final List<DatePickerButtonRow> rows;
 
     public InlineKeyboardMarkup toInline() {
+        return toInline(DatePickerCallbackCodec.forLocale(locale));
+    }
+
+    public InlineKeyboardMarkup toInline(@Nonnull DatePickerCallbackCodec codec) {
         return InlineKeyboardMarkup.builder()
-                .inlineKeyboard(rows.stream().map(r -> r.toInline(locale)).collect(Collectors.toList()))
+                .inlineKeyboard(rows.stream().map(r -> r.toInline(locale, codec)).collect(Collectors.toList()))
                 .build();
     }
 
+    public byte[] toJson() {
+        return toJson(DatePickerCallbackCodec.forLocale(locale));
+    }
+
+    /**
+     * @param codec the codec to encode callback data with
+     * @return the UTF-8 encoded JSON the Bot API expects for {@code reply_markup}
+     * @see PackedDatePickerKeyboard#toJson(DatePickerCallbackCodec)
+     */
+    @Nonnull
+    public byte[] toJson(@Nonnull DatePickerCallbackCodec codec) {
+        return PackedDatePickerKeyboard.of(this).toJson(codec);
+    }
+
+    /**
+     * @return the total number of buttons across every row
+     */
+    public int getButtonCount() {
+        int count = 0;
+        for (DatePickerButtonRow row : rows) {
+            count += row.getButtons().size();
+        }
+        return count;
+    }
+
+    /**
+     * Hashes everything that ends up in the inline keyboard: the shape of the keyboard, and the label, type and date
+     * of every button. Two keyboards with the same fingerprint render the same markup.
+     *
+     * @return a 64-bit fingerprint of this keyboard
+     */
+    public long fingerprint() {
+        long hash = Fingerprint.add(Fingerprint.of(locale.toLanguageTag()), rows.size());
+        for (DatePickerButtonRow row : rows) {
+            hash = Fingerprint.add(hash, row.getButtons().size());
+            for (DatePickerButton button : row.getButtons()) {
+                hash = Fingerprint.add(hash, button.getType().ordinal());
+                hash = Fingerprint.add(hash, button.getLabel());
+                hash = Fingerprint.add(hash, button.getDate() != null ? button.getDate().toEpochDay() : Long.MIN_VALUE);
+            }
+        }
+        return hash;
+    }
+
 }
@@ -0,0 +1,43 @@
+package com.jtelegram.ext.datepicker.keyboard;
+
+import javax.annotation.Nullable;
+
+/**
+ * 64-bit FNV-1a hashing, used to tell whether a re-rendered keyboard or message differs from the last one sent.
+ *
+ * @author Nick Robson
+ */
+public final class Fingerprint {
+
+    public static final long EMPTY = 0xcbf29ce484222325L;
+
+    private static final long PRIME = 0x100000001b3L;
+
+    private Fingerprint() {}
+
+    public static long of(@Nullable CharSequence text) {
+        return add(EMPTY, text);
+    }
+
+    public static long add(long hash, long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash ^ (value & 0xff)) * PRIME;
+            value >>>= 8;
+        }
+        return hash;
+    }
+
+    public static long add(long hash, @Nullable CharSequence text) {
+        if (text == null) {
+            return add(hash, -1L);
+        }
+        hash = add(hash, text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            hash = (hash ^ (c & 0xff)) * PRIME;
+            hash = (hash ^ (c >>> 8)) * PRIME;
+        }
+        return hash;
+    }
+
+}
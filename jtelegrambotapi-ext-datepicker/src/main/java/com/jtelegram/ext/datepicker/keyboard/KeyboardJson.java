@@ -0,0 +1,60 @@
+package com.jtelegram.ext.datepicker.keyboard;
+
+import java.nio.charset.StandardCharsets;
+import javax.annotation.Nonnull;
+
+/**
+ * Pre-encodes the parts of an inline keyboard's JSON, as sent to the Bot API in {@code reply_markup},
+ * so keyboards can be serialized by copying bytes rather than through reflection.
+ *
+ * @author Nick Robson
+ */
+final class KeyboardJson {
+
+    static final byte[] KEYBOARD_START = ascii("{\"inline_keyboard\":[");
+    static final byte[] KEYBOARD_END = ascii("]}");
+    static final byte ROW_START = '[';
+    static final byte ROW_END = ']';
+    static final byte SEPARATOR = ',';
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private KeyboardJson() {}
+
+    /**
+     * @param text the label of the button
+     * @param callbackData the callback data of the button
+     * @return the button as a UTF-8 encoded JSON object
+     */
+    @Nonnull
+    static byte[] button(@Nonnull String text, @Nonnull String callbackData) {
+        StringBuilder json = new StringBuilder(text.length() + callbackData.length() + 32);
+        json.append("{\"text\":");
+        appendString(json, text);
+        json.append(",\"callback_data\":");
+        appendString(json, callbackData);
+        json.append('}');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendString(@Nonnull StringBuilder json, @Nonnull String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append("\\u00").append(HEX[c >>> 4 & 0xf]).append(HEX[c & 0xf]);
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    @Nonnull
+    private static byte[] ascii(@Nonnull String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+}
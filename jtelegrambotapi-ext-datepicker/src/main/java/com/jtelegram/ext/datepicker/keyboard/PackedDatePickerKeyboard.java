@@ -0,0 +1,227 @@
+package com.jtelegram.ext.datepicker.keyboard;
+
+import com.jtelegram.api.inline.keyboard.InlineKeyboardButton;
+import com.jtelegram.api.inline.keyboard.InlineKeyboardMarkup;
+import com.jtelegram.api.inline.keyboard.InlineKeyboardRow;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallbackCodec;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import lombok.Getter;
+
+/**
+ * A compact, read-only form of a {@link DatePickerKeyboard}.
+ *
+ * Rather than lists of rows and buttons, each cell is an index into a table of shared, immutable buttons, and the
+ * rows are offsets into the flat array of cells. A month layout hands the same table and row offsets to every
+ * keyboard it renders, so rendering a month only allocates the array of cells, and converting to an
+ * {@link InlineKeyboardMarkup} reuses each button's cached encoding.
+ *
+ * {@link #toJson(DatePickerCallbackCodec)} goes a step further, stitching together each button's cached JSON,
+ * so that a highlighted or disabled day costs no more to serialize than any other.
+ *
+ * @author Nick Robson
+ */
+public final class PackedDatePickerKeyboard {
+
+    @Getter
+    @Nonnull
+    private final Locale locale;
+
+    @Nonnull
+    private final DatePickerButton[] buttons;
+
+    // row r covers cells[rowOffsets[r]] up to cells[rowOffsets[r + 1]]
+    @Nonnull
+    private final int[] rowOffsets;
+
+    @Nonnull
+    private final int[] cells;
+
+    /**
+     * The arrays aren't copied, and must not be modified afterwards; only the cells need to be unique to a keyboard.
+     *
+     * @param locale the locale of the keyboard
+     * @param buttons the buttons the cells refer to
+     * @param rowOffsets the index of the first cell of each row, followed by the number of cells
+     * @param cells the index into {@code buttons} of each cell, row by row
+     */
+    public PackedDatePickerKeyboard(@Nonnull Locale locale, @Nonnull DatePickerButton[] buttons, @Nonnull int[] rowOffsets, @Nonnull int[] cells) {
+        if (rowOffsets.length == 0 || rowOffsets[rowOffsets.length - 1] != cells.length) {
+            throw new IllegalArgumentException("rowOffsets must end with the number of cells");
+        }
+        this.locale = locale;
+        this.buttons = buttons;
+        this.rowOffsets = rowOffsets;
+        this.cells = cells;
+    }
+
+    /**
+     * Packs a keyboard, sharing its buttons.
+     *
+     * @param keyboard the keyboard
+     * @return the packed keyboard
+     */
+    @Nonnull
+    public static PackedDatePickerKeyboard of(@Nonnull DatePickerKeyboard keyboard) {
+        List<DatePickerButtonRow> rows = keyboard.getRows();
+        int[] rowOffsets = new int[rows.size() + 1];
+        int[] cells = new int[keyboard.getButtonCount()];
+        Map<DatePickerButton, Integer> indices = new IdentityHashMap<>();
+        List<DatePickerButton> buttons = new ArrayList<>();
+
+        int cell = 0;
+        for (int row = 0; row < rows.size(); row++) {
+            rowOffsets[row] = cell;
+            for (DatePickerButton button : rows.get(row).getButtons()) {
+                Integer index = indices.get(button);
+                if (index == null) {
+                    index = buttons.size();
+                    indices.put(button, index);
+                    buttons.add(button);
+                }
+                cells[cell++] = index;
+            }
+        }
+        rowOffsets[rows.size()] = cell;
+        return new PackedDatePickerKeyboard(keyboard.getLocale(), buttons.toArray(new DatePickerButton[0]), rowOffsets, cells);
+    }
+
+    public int getRowCount() {
+        return rowOffsets.length - 1;
+    }
+
+    public int getRowLength(int row) {
+        return rowOffsets[row + 1] - rowOffsets[row];
+    }
+
+    public int getButtonCount() {
+        return cells.length;
+    }
+
+    @Nonnull
+    public DatePickerButton getButton(int row, int column) {
+        if (column < 0 || column >= getRowLength(row)) {
+            throw new IndexOutOfBoundsException("column " + column + " is outside row " + row);
+        }
+        return buttons[cells[rowOffsets[row] + column]];
+    }
+
+    @Nonnull
+    public DatePickerButtonType getType(int row, int column) {
+        return getButton(row, column).getType();
+    }
+
+    @Nullable
+    public LocalDate getDate(int row, int column) {
+        return getButton(row, column).getDate();
+    }
+
+    @Nonnull
+    public String getLabel(int row, int column) {
+        return getButton(row, column).getLabel();
+    }
+
+    public InlineKeyboardMarkup toInline() {
+        return toInline(DatePickerCallbackCodec.forLocale(locale));
+    }
+
+    public InlineKeyboardMarkup toInline(@Nonnull DatePickerCallbackCodec codec) {
+        List<InlineKeyboardRow> rows = new ArrayList<>(getRowCount());
+        for (int row = 0; row < getRowCount(); row++) {
+            List<InlineKeyboardButton> inline = new ArrayList<>(getRowLength(row));
+            for (int cell = rowOffsets[row]; cell < rowOffsets[row + 1]; cell++) {
+                inline.add(buttons[cells[cell]].toInline(locale, codec));
+            }
+            rows.add(InlineKeyboardRow.builder().buttons(inline).build());
+        }
+        return InlineKeyboardMarkup.builder().inlineKeyboard(rows).build();
+    }
+
+    public byte[] toJson() {
+        return toJson(DatePickerCallbackCodec.forLocale(locale));
+    }
+
+    /**
+     * Serializes this keyboard as the JSON the Bot API expects for {@code reply_markup}, without going through an
+     * {@link InlineKeyboardMarkup}, e.g. for requests sent with your own HTTP client or as a webhook reply.
+     *
+     * @param codec the codec to encode callback data with
+     * @return the UTF-8 encoded JSON
+     */
+    @Nonnull
+    public byte[] toJson(@Nonnull DatePickerCallbackCodec codec) {
+        // size it exactly first, so the buttons are copied straight into the result
+        int size = KeyboardJson.KEYBOARD_START.length + KeyboardJson.KEYBOARD_END.length;
+        for (int row = 0; row < getRowCount(); row++) {
+            size += (row > 0 ? 3 : 2) + Math.max(getRowLength(row) - 1, 0);
+            for (int cell = rowOffsets[row]; cell < rowOffsets[row + 1]; cell++) {
+                size += buttons[cells[cell]].toJson(locale, codec).length;
+            }
+        }
+
+        byte[] json = new byte[size];
+        int position = put(json, 0, KeyboardJson.KEYBOARD_START);
+        for (int row = 0; row < getRowCount(); row++) {
+            if (row > 0) {
+                json[position++] = KeyboardJson.SEPARATOR;
+            }
+            json[position++] = KeyboardJson.ROW_START;
+            for (int cell = rowOffsets[row]; cell < rowOffsets[row + 1]; cell++) {
+                if (cell > rowOffsets[row]) {
+                    json[position++] = KeyboardJson.SEPARATOR;
+                }
+                position = put(json, position, buttons[cells[cell]].toJson(locale, codec));
+            }
+            json[position++] = KeyboardJson.ROW_END;
+        }
+        put(json, position, KeyboardJson.KEYBOARD_END);
+        return json;
+    }
+
+    private static int put(@Nonnull byte[] json, int position, @Nonnull byte[] fragment) {
+        System.arraycopy(fragment, 0, json, position, fragment.length);
+        return position + fragment.length;
+    }
+
+    /**
+     * @return this keyboard as lists of rows and buttons, sharing its buttons
+     */
+    @Nonnull
+    public DatePickerKeyboard toKeyboard() {
+        List<DatePickerButtonRow> rows = new ArrayList<>(getRowCount());
+        for (int row = 0; row < getRowCount(); row++) {
+            DatePickerButton[] rowButtons = new DatePickerButton[getRowLength(row)];
+            for (int column = 0; column < rowButtons.length; column++) {
+                rowButtons[column] = buttons[cells[rowOffsets[row] + column]];
+            }
+            rows.add(new DatePickerButtonRow(Collections.unmodifiableList(Arrays.asList(rowButtons))));
+        }
+        return new DatePickerKeyboard(locale, Collections.unmodifiableList(rows));
+    }
+
+    /**
+     * @return the same fingerprint as {@link DatePickerKeyboard#fingerprint()} gives the unpacked keyboard
+     */
+    public long fingerprint() {
+        long hash = Fingerprint.add(Fingerprint.of(locale.toLanguageTag()), getRowCount());
+        for (int row = 0; row < getRowCount(); row++) {
+            hash = Fingerprint.add(hash, getRowLength(row));
+            for (int cell = rowOffsets[row]; cell < rowOffsets[row + 1]; cell++) {
+                DatePickerButton button = buttons[cells[cell]];
+                hash = Fingerprint.add(hash, button.getType().ordinal());
+                hash = Fingerprint.add(hash, button.getLabel());
+                hash = Fingerprint.add(hash, button.getDate() != null ? button.getDate().toEpochDay() : Long.MIN_VALUE);
+            }
+        }
+        return hash;
+    }
+
+}
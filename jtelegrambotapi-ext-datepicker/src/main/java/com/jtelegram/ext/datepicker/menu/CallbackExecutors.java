@@ -0,0 +1,61 @@
+package com.jtelegram.ext.datepicker.menu;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+
+/**
+ * Holds the executor that asynchronous menu callbacks run on when menus aren't given one.
+ *
+ * @author Nick Robson
+ */
+final class CallbackExecutors {
+
+    // bounds for the pool used before Java 21, so a burst of slow hooks can't start a thread per click
+    static final int MAX_THREADS = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+    static final int MAX_QUEUED = 1024;
+
+    private CallbackExecutors() {}
+
+    /**
+     * @return a virtual thread per task on Java 21 and later, otherwise a bounded pool of daemon threads, which rejects
+     *         tasks with a {@link java.util.concurrent.RejectedExecutionException} once its queue is full, so slow hooks
+     *         never run on the thread dispatching clicks
+     */
+    @Nonnull
+    static Executor getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    @Nonnull
+    private static Executor create() {
+        try {
+            // looked up reflectively, as this is still built for Java 8
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            AtomicInteger threads = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(MAX_QUEUED),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "datepicker-callback-" + threads.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            // idle threads still exit, as they would in a cached pool
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
+    // created on first use, so menus without asynchronous callbacks never start any threads
+    private static class Holder {
+        private static final Executor DEFAULT = create();
+    }
+
+}
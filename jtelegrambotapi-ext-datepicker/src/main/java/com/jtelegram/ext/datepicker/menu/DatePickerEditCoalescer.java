@@ -0,0 +1,81 @@
+package com.jtelegram.ext.datepicker.menu;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import lombok.Getter;
+
+/**
+ * Collapses bursts of clicks on the same {@link DatePickerMenu} into a single message edit.
+ *
+ * The first click that changes a menu schedules an edit for the end of the window; any further clicks before then only
+ * change the menu's state, and the edit renders whatever the state is once the window has passed. Clicks are still
+ * answered straight away, as the menu tells the menus subsystem that no edit is needed.
+ *
+ * One coalescer can be shared by any number of menus.
+ *
+ * @author Nick Robson
+ */
+public class DatePickerEditCoalescer {
+
+    @Nonnull
+    private final ScheduledExecutorService scheduler;
+
+    @Getter
+    @Nonnull
+    private final Duration window;
+
+    @Nonnull
+    private final Set<DatePickerMenu> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param scheduler runs the edits
+     * @param window how long to wait for further clicks after the first one, e.g. 300ms
+     */
+    public DatePickerEditCoalescer(@Nonnull ScheduledExecutorService scheduler, @Nonnull Duration window) {
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler cannot be null");
+        this.window = Objects.requireNonNull(window, "window cannot be null");
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("window cannot be negative");
+        }
+    }
+
+    /**
+     * @return the number of menus with an edit waiting to run
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Schedules an edit of the menu at the end of the window, unless one is already scheduled.
+     *
+     * @param menu the menu
+     * @return false if the scheduler rejected the edit, e.g. as it's shutting down, in which case the caller must edit
+     *         the menu itself
+     */
+    boolean schedule(@Nonnull DatePickerMenu menu) {
+        if (pending.add(menu)) {
+            try {
+                scheduler.schedule(() -> flush(menu), window.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException ex) {
+                // otherwise the menu would stay pending, and never be edited again
+                pending.remove(menu);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void flush(@Nonnull DatePickerMenu menu) {
+        // clicks from here on need a new edit, as this one may already have rendered
+        pending.remove(menu);
+        menu.editIfChanged();
+    }
+
+}
@@ -3,34 +3,137 @@ package com.jtelegram.ext.datepicker.menu;
 import com.jtelegram.api.TelegramBot;
 import com.jtelegram.api.events.inline.keyboard.CallbackQueryEvent;
 import com.jtelegram.api.ex.TelegramException;
+import com.jtelegram.api.inline.keyboard.InlineKeyboardMarkup;
 import com.jtelegram.api.menu.Menu;
+import com.jtelegram.api.menu.MenuButton;
 import com.jtelegram.api.menu.MenuRow;
 import com.jtelegram.api.util.TextBuilder;
-import com.jtelegram.ext.datepicker.keyboard.DatePickerKeyboard;
+import com.jtelegram.ext.datepicker.availability.DateAvailabilityCache;
+import com.jtelegram.ext.datepicker.availability.MonthAvailability;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallback;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallbackCodec;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallbackRouter;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButton;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonType;
+import com.jtelegram.ext.datepicker.keyboard.Fingerprint;
+import com.jtelegram.ext.datepicker.keyboard.PackedDatePickerKeyboard;
+import com.jtelegram.ext.datepicker.metrics.DatePickerMetrics;
 import com.jtelegram.ext.datepicker.picker.DatePicker;
 import com.jtelegram.ext.datepicker.picker.DatePickerOptions;
+import com.jtelegram.ext.datepicker.state.DatePickerMenuState;
+import com.jtelegram.ext.datepicker.state.DatePickerMenuState.View;
+import com.jtelegram.ext.datepicker.state.MenuStateStore;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import lombok.Builder;
+import lombok.Value;
 
 /**
+ * A calendar attached to a message, with its selected date and visible month kept on the server.
+ *
+ * Menus can be clicked by several users at once, e.g. in group chats. The selected date, the visible month and
+ * the current view are held together in one immutable snapshot, swapped atomically without locking, so every click
+ * and every render sees a consistent state.
+ *
+ * Date selection hooks that do slow work, e.g. writing to a database, can be given as asynchronous variants
+ * returning {@link CompletionStage}s. Clicks then return straight away without editing the message, the hooks run on
+ * the callback executor, and the menu is edited once they complete.
+ *
+ * Dates from a slow backend can be highlighted and disabled through a {@link DateAvailabilityCache}. The visible
+ * month's availability is only ever read from the cache, and the months either side of it are prefetched, so moving
+ * between months doesn't wait on the backend. If a month has never been loaded, navigating to it edits the menu once
+ * it has. The month and year grids don't use the availability.
+ *
+ * To let any node of a bot handle clicks, give menus a {@link MenuStateStore} and tell them which message they were
+ * sent as through {@link #bindMessage(long, long)}. Every click that changes the menu then saves its state, and a node
+ * that doesn't hold the menu can build it again from the stored state, through {@code DatePickerMenu.builder().state(state)}.
+ * The menus subsystem only knows the menus sent from its own node, so such menus are sent with the keyboard from
+ * {@link #toInlineKeyboard()} instead, whose callbacks a {@link DatePickerCallbackRouter} can decode on any node and
+ * pass to the rebuilt menu's {@link #onCallback(CallbackQueryEvent, DatePickerCallback)}, and are edited through the
+ * keyboard updater. A menu's state is removed from the store once the menu expires.
+ *
+ * Re-rendering reuses what it can of the last rows: a button is only wrapped again if its cell changed, and a row only
+ * rebuilt if one of its cells did, so selecting a date, which only moves the highlight, replaces two buttons.
+ *
  * @author Nick Robson
  */
 public class DatePickerMenu extends Menu {
 
+    @Value
+    private static class MessageReference {
+        long chatId;
+        long messageId;
+    }
+
+    @Value
+    private static class RenderedRows {
+        @Nonnull PackedDatePickerKeyboard keyboard;
+        @Nonnull List<MenuRow> rows;
+    }
+
+    // what hasChanged rendered, handed on to the edit that follows it so that nothing is rendered twice
+    @Value
+    private static class PendingKeyboard {
+        @Nonnull State state;
+        @Nonnull PackedDatePickerKeyboard keyboard;
+    }
+
+    @Value
+    private static class PendingMessage {
+        @Nullable TextBuilder message;
+        long fingerprint;
+    }
+
+    @Value
+    private static class SelectionOptions {
+        @Nonnull LocalDate selectedDate;
+        @Nonnull DatePickerOptions options;
+    }
+
+    @Value
+    private static class State {
+        @Nonnull LocalDate selectedDate;
+        // with grid navigation, the grids show the year of this month
+        @Nonnull LocalDate selectedMonth;
+        @Nonnull View view;
+
+        @Nonnull
+        State withSelectedDate(@Nonnull LocalDate selectedDate) {
+            return new State(selectedDate, selectedMonth, view);
+        }
+
+        @Nonnull
+        State withSelectedMonth(@Nonnull LocalDate selectedMonth, @Nonnull View view) {
+            return new State(selectedDate, selectedMonth, view);
+        }
+    }
+
     @Nonnull
     private final DatePicker datePicker;
 
     @Nonnull
     private final DatePickerOptions datePickerOptions;
 
+    @Nullable
+    private final DateAvailabilityCache availability;
+
     @Nonnull
     private final BiPredicate<CallbackQueryEvent, LocalDate> monthSelectionPredicate;
 
@@ -40,96 +143,708 @@ public class DatePickerMenu extends Menu {
     @Nonnull
     private final BiConsumer<CallbackQueryEvent, LocalDate> dateSelectionConsumer;
 
+    @Nullable
+    private final BiFunction<CallbackQueryEvent, LocalDate, CompletionStage<Boolean>> asyncDateSelectionPredicate;
+
+    @Nullable
+    private final BiFunction<CallbackQueryEvent, LocalDate, CompletionStage<?>> asyncDateSelectionConsumer;
+
+    @Nullable
+    private final Executor callbackExecutor;
+
     @Nonnull
     private final Consumer<TelegramException> errorHandler;
 
     @Nonnull
-    private LocalDate selectedDate;
+    private final Consumer<Throwable> asyncErrorHandler;
 
     @Nonnull
-    private LocalDate selectedMonth;
+    private final AtomicReference<State> state;
 
     @Nullable
     private Supplier<TextBuilder> messageSupplier;
 
+    @Nullable
+    private final DatePickerMenuRegistry registry;
+
+    @Nullable
+    private final DatePickerEditCoalescer editCoalescer;
+
+    @Nullable
+    private final DatePickerMetrics metrics;
+
+    @Nullable
+    private final MenuStateStore stateStore;
+
+    @Nullable
+    private final Consumer<InlineKeyboardMarkup> keyboardUpdater;
+
+    @Nullable
+    private final String optionsId;
+
+    @Nullable
+    private volatile MessageReference message;
+
+    private volatile boolean expired;
+
+    // fingerprints of what was last sent, so clicks that don't change anything don't cost an edit
+    private volatile long renderedKeyboard = Fingerprint.EMPTY;
+    private volatile long renderedMessage = Fingerprint.EMPTY;
+
+    @Nullable
+    private volatile PendingKeyboard pendingKeyboard;
+
+    @Nullable
+    private volatile PendingMessage pendingMessage;
+
+    // the last rows handed out, and the keyboard they wrap, which the next render patches rather than rebuilds
+    @Nullable
+    private volatile RenderedRows renderedRows;
+
+    // the options highlighting the selected date, shared by every render until the selection changes
+    @Nullable
+    private volatile SelectionOptions selectionOptions;
+
+    // created once and shared by every button, rather than per button per render
+    private final BiPredicate<CallbackQueryEvent, LocalDate> monthClickHandler = this::onClickMonth;
+    private final BiPredicate<CallbackQueryEvent, LocalDate> dateClickHandler = this::onClickDate;
+    private final BiPredicate<CallbackQueryEvent, LocalDate> monthGridClickHandler = this::onOpenMonthGrid;
+    private final BiPredicate<CallbackQueryEvent, LocalDate> yearGridClickHandler = this::onOpenYearGrid;
+
     @Builder
     protected DatePickerMenu(
             @Nonnull TelegramBot bot,
             @Nonnull DatePicker datePicker,
             @Nonnull DatePickerOptions datePickerOptions,
+            @Nullable DateAvailabilityCache availability,
             @Nullable LocalDate selectedDate,
             @Nullable BiPredicate<CallbackQueryEvent, LocalDate> monthSelectionPredicate,
             @Nullable BiPredicate<CallbackQueryEvent, LocalDate> dateSelectionPredicate,
             @Nullable BiConsumer<CallbackQueryEvent, LocalDate> dateSelectionConsumer,
+            @Nullable BiFunction<CallbackQueryEvent, LocalDate, CompletionStage<Boolean>> asyncDateSelectionPredicate,
+            @Nullable BiFunction<CallbackQueryEvent, LocalDate, CompletionStage<?>> asyncDateSelectionConsumer,
+            @Nullable Executor callbackExecutor,
             @Nullable Consumer<TelegramException> errorHandler,
-            @Nullable Supplier<TextBuilder> messageSupplier) {
+            @Nullable Consumer<Throwable> asyncErrorHandler,
+            @Nullable Supplier<TextBuilder> messageSupplier,
+            @Nullable DatePickerMenuRegistry registry,
+            @Nullable DatePickerEditCoalescer editCoalescer,
+            @Nullable DatePickerMetrics metrics,
+            @Nullable DatePickerMenuState state,
+            @Nullable MenuStateStore stateStore,
+            @Nullable String optionsId,
+            @Nullable Consumer<InlineKeyboardMarkup> keyboardUpdater) {
         super(bot);
+        if (selectedDate != null && state != null) {
+            throw new IllegalArgumentException("only one of selectedDate and state can be set");
+        }
+        if (state != null && keyboardUpdater == null) {
+            // the menus subsystem never saw the message, so only the updater can edit it
+            throw new IllegalArgumentException("keyboardUpdater must be set when state is set");
+        }
+        if (dateSelectionPredicate != null && asyncDateSelectionPredicate != null) {
+            throw new IllegalArgumentException("only one of dateSelectionPredicate and asyncDateSelectionPredicate can be set");
+        }
+        if (dateSelectionConsumer != null && asyncDateSelectionConsumer != null) {
+            throw new IllegalArgumentException("only one of dateSelectionConsumer and asyncDateSelectionConsumer can be set");
+        }
         this.datePicker = datePicker;
         this.datePickerOptions = datePickerOptions;
-        this.selectedDate = selectedDate != null ? selectedDate : LocalDate.now();
-        this.selectedMonth = this.selectedDate.withDayOfMonth(1);
+        this.availability = availability;
+        if (state != null) {
+            this.state = new AtomicReference<>(new State(state.getSelectedDate(), state.getVisibleMonth(), state.getView()));
+            this.message = new MessageReference(state.getChatId(), state.getMessageId());
+        } else {
+            LocalDate initialDate = selectedDate != null ? selectedDate : LocalDate.now();
+            this.state = new AtomicReference<>(new State(initialDate, datePicker.getFirstDayOfMonth(initialDate), View.DAYS));
+        }
         this.monthSelectionPredicate = monthSelectionPredicate != null ? monthSelectionPredicate : (e, d) -> true;
         this.dateSelectionPredicate = dateSelectionPredicate != null ? dateSelectionPredicate : (e, d) -> true;
         this.dateSelectionConsumer = dateSelectionConsumer != null ? dateSelectionConsumer : (e, d) -> {};
+        this.asyncDateSelectionPredicate = asyncDateSelectionPredicate;
+        this.asyncDateSelectionConsumer = asyncDateSelectionConsumer;
+        this.callbackExecutor = callbackExecutor;
         this.errorHandler = errorHandler != null ? errorHandler : Throwable::printStackTrace;
+        this.asyncErrorHandler = asyncErrorHandler != null ? asyncErrorHandler : Throwable::printStackTrace;
         this.messageSupplier = messageSupplier;
+        this.registry = registry;
+        this.editCoalescer = editCoalescer;
+        this.metrics = metrics;
+        this.stateStore = stateStore;
+        this.keyboardUpdater = keyboardUpdater;
+        this.optionsId = optionsId != null ? optionsId : state != null ? state.getOptionsId() : null;
+        if (availability != null && this.state.get().getView() == View.DAYS) {
+            loadAvailability(this.state.get().getSelectedMonth());
+        }
+        // last, so the registry and its eviction listener never see a menu that's still being built
+        if (registry != null) {
+            registry.track(this);
+        }
+    }
+
+    /**
+     * Records the message this menu was sent as, and saves its state to the state store, if there is one.
+     * Menus built from a stored state already know their message.
+     *
+     * @param chatId the chat the message is in
+     * @param messageId the message
+     */
+    public void bindMessage(long chatId, long messageId) {
+        message = new MessageReference(chatId, messageId);
+        saveState();
+    }
+
+    /**
+     * @return the state of this menu, referring to no message, i.e. chat and message id 0, until one is bound
+     */
+    @Nonnull
+    public DatePickerMenuState getState() {
+        State state = this.state.get();
+        MessageReference message = this.message;
+        return DatePickerMenuState.builder()
+                .chatId(message != null ? message.getChatId() : 0)
+                .messageId(message != null ? message.getMessageId() : 0)
+                .locale(datePicker.getLocale())
+                .optionsId(optionsId)
+                .selectedDate(state.getSelectedDate())
+                .visibleMonth(state.getSelectedMonth())
+                .view(state.getView())
+                .build();
+    }
+
+    // a store that can't be written to doesn't stop the click, it only stops other nodes from resuming the menu
+    private void saveState() {
+        if (stateStore == null || message == null || expired) {
+            return;
+        }
+        try {
+            stateStore.save(getState());
+            if (expired) {
+                // expired while saving, after expire() removed the state
+                removeState();
+            }
+        } catch (RuntimeException ex) {
+            reportError(ex);
+        }
+    }
+
+    // an expired menu no longer reacts to clicks, so no node should resume it either
+    private void removeState() {
+        MessageReference message = this.message;
+        if (stateStore == null || message == null) {
+            return;
+        }
+        try {
+            stateStore.remove(message.getChatId(), message.getMessageId());
+        } catch (RuntimeException ex) {
+            reportError(ex);
+        }
+    }
+
+    // for errors outside of a click, which have no update to report them against
+    void reportError(@Nonnull Throwable error) {
+        getMetrics().onError(error);
+        asyncErrorHandler.accept(error);
+    }
+
+    /**
+     * @return true if this menu was evicted from its {@link DatePickerMenuRegistry}, and no longer has any buttons
+     */
+    public boolean isExpired() {
+        return expired;
     }
 
-    private boolean isDateHighlighted(LocalDate date) {
+    void expire() {
+        expired = true;
+        removeState();
+    }
+
+    private boolean isLive() {
+        return !expired && (registry == null || registry.touch(this));
+    }
+
+    // looked up on use, so menus without their own metrics follow DatePickerMetrics#setDefault
+    @Nonnull
+    private DatePickerMetrics getMetrics() {
+        return metrics != null ? metrics : DatePickerMetrics.getDefault();
+    }
+
+    @Nonnull
+    private Executor getCallbackExecutor() {
+        return callbackExecutor != null ? callbackExecutor : CallbackExecutors.getDefault();
+    }
+
+    private boolean isDateDisabled(LocalDate date) {
+        if (datePickerOptions.isDateDisabled(date)) {
+            return true;
+        }
+        MonthAvailability loaded = availability != null ? availability.getNow(YearMonth.from(date)) : null;
+        return loaded != null && loaded.getDisabledDates() != null && loaded.getDisabledDates().contains(date);
+    }
+
+    private boolean isDateHighlighted(LocalDate date, LocalDate selectedDate) {
         return date.isEqual(selectedDate)
                 || (this.datePickerOptions.getDateHighlightedPredicate() != null
                     && this.datePickerOptions.getDateHighlightedPredicate().test(date));
     }
 
-    private boolean onClickDate(CallbackQueryEvent event, LocalDate date) {
-        if (dateSelectionPredicate.test(event, date)) {
-            dateSelectionConsumer.accept(event, date);
-            if (!selectedDate.isEqual(date)) {
-                selectedDate = date;
-                return true;
+    /**
+     * Handles a click on a keyboard sent from {@link #toInlineKeyboard()}, as decoded by a {@link DatePickerCallbackRouter},
+     * usually on a menu just built again from its stored state. If the click changes the menu, it's edited through
+     * the keyboard updater; failures to edit are passed to the error handler, or reported, rather than thrown.
+     *
+     * @param event the event the click came from
+     * @param callback the decoded callback
+     */
+    public void onCallback(@Nonnull CallbackQueryEvent event, @Nonnull DatePickerCallback callback) {
+        DatePickerButtonType type = callback.getType();
+        if (type == null) {
+            return;
+        }
+        LocalDate date = callback.getDate();
+        boolean edit;
+        switch (type) {
+            case SELECT_DATE:
+                edit = onClickDate(event, date);
+                break;
+            case GOTO_MONTH:
+                edit = onClickMonth(event, date);
+                break;
+            case OPEN_MONTH_GRID:
+                edit = onOpenMonthGrid(event, date);
+                break;
+            case OPEN_YEAR_GRID:
+                edit = onOpenYearGrid(event, date);
+                break;
+            default:
+                // labels do nothing
+                return;
+        }
+        if (edit) {
+            try {
+                update();
+            } catch (TelegramException ex) {
+                handleException(ex);
+            } catch (RuntimeException ex) {
+                // e.g. from the keyboard updater, which would otherwise escape into the router
+                reportError(ex);
             }
         }
-        return false;
+    }
+
+    private boolean onClickDate(CallbackQueryEvent event, LocalDate date) {
+        if (!isLive()) {
+            return false;
+        }
+        // disabled dates render as labels, but older keyboards may still have them as buttons
+        if (isDateDisabled(date)) {
+            getMetrics().onCallbackRejected(DatePickerButtonType.SELECT_DATE);
+            return false;
+        }
+        if (asyncDateSelectionPredicate != null || asyncDateSelectionConsumer != null) {
+            selectDateAsync(event, date);
+            return false;
+        }
+        if (!dateSelectionPredicate.test(event, date)) {
+            getMetrics().onCallbackRejected(DatePickerButtonType.SELECT_DATE);
+            return false;
+        }
+        getMetrics().onCallbackHandled(DatePickerButtonType.SELECT_DATE);
+        dateSelectionConsumer.accept(event, date);
+        state.updateAndGet(s -> s.withSelectedDate(date));
+        saveState();
+        return requestUpdate();
+    }
+
+    /**
+     * Runs the date selection hooks on the callback executor, and edits the menu once they've completed.
+     * If several clicks are in flight at once, whichever completes last is selected.
+     * If the executor rejects the hooks, the click is rejected without running them.
+     */
+    private void selectDateAsync(CallbackQueryEvent event, LocalDate date) {
+        CompletableFuture<CompletionStage<Boolean>> tested;
+        try {
+            tested = CompletableFuture.supplyAsync(() -> testDateSelection(event, date), getCallbackExecutor());
+        } catch (RejectedExecutionException ex) {
+            getMetrics().onCallbackRejected(DatePickerButtonType.SELECT_DATE);
+            getMetrics().onError(ex);
+            asyncErrorHandler.accept(ex);
+            return;
+        }
+        tested.thenCompose(accepted -> accepted)
+                .thenCompose(accepted -> {
+                    if (!Boolean.TRUE.equals(accepted)) {
+                        getMetrics().onCallbackRejected(DatePickerButtonType.SELECT_DATE);
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    getMetrics().onCallbackHandled(DatePickerButtonType.SELECT_DATE);
+                    return acceptDateSelection(event, date).thenApply(ignored -> true);
+                })
+                .whenComplete((selected, error) -> {
+                    if (error != null) {
+                        Throwable cause = unwrap(error);
+                        getMetrics().onError(cause);
+                        asyncErrorHandler.accept(cause);
+                    } else if (Boolean.TRUE.equals(selected)) {
+                        state.updateAndGet(s -> s.withSelectedDate(date));
+                        saveState();
+                        scheduleEdit();
+                    }
+                });
+    }
+
+    @Nonnull
+    private CompletionStage<Boolean> testDateSelection(CallbackQueryEvent event, LocalDate date) {
+        if (asyncDateSelectionPredicate != null) {
+            return Objects.requireNonNull(asyncDateSelectionPredicate.apply(event, date), "asyncDateSelectionPredicate returned null");
+        }
+        return CompletableFuture.completedFuture(dateSelectionPredicate.test(event, date));
+    }
+
+    @Nonnull
+    private CompletionStage<?> acceptDateSelection(CallbackQueryEvent event, LocalDate date) {
+        if (asyncDateSelectionConsumer != null) {
+            return Objects.requireNonNull(asyncDateSelectionConsumer.apply(event, date), "asyncDateSelectionConsumer returned null");
+        }
+        dateSelectionConsumer.accept(event, date);
+        return CompletableFuture.completedFuture(null);
     }
 
     private boolean onClickMonth(CallbackQueryEvent event, LocalDate date) {
-        if (monthSelectionPredicate.test(event, date)) {
-            if (!selectedMonth.isEqual(date)) {
-                selectedMonth = date;
-                return true;
-            }
+        return navigate(event, date, DatePickerButtonType.GOTO_MONTH, View.DAYS);
+    }
+
+    private boolean onOpenMonthGrid(CallbackQueryEvent event, LocalDate date) {
+        return navigate(event, date, DatePickerButtonType.OPEN_MONTH_GRID, View.MONTH_GRID);
+    }
+
+    private boolean onOpenYearGrid(CallbackQueryEvent event, LocalDate date) {
+        return navigate(event, date, DatePickerButtonType.OPEN_YEAR_GRID, View.YEAR_GRID);
+    }
+
+    // moving through the grids counts as selecting a month, so it's restricted by monthSelectionPredicate
+    private boolean navigate(CallbackQueryEvent event, LocalDate date, DatePickerButtonType type, View view) {
+        if (!isLive()) {
+            return false;
+        }
+        if (!monthSelectionPredicate.test(event, date)) {
+            getMetrics().onCallbackRejected(type);
+            return false;
+        }
+        getMetrics().onCallbackHandled(type);
+        state.updateAndGet(s -> s.withSelectedMonth(date, view));
+        saveState();
+        if (availability != null && view == View.DAYS && !loadAvailability(date)) {
+            // showing the month without its availability could offer dates that aren't available
+            return false;
+        }
+        return requestUpdate();
+    }
+
+    /**
+     * Starts loading a month's availability, and its neighbours', and edits the menu once the month has loaded.
+     * A month of a non-ISO calendar may span two ISO months, in which case the menu is only edited once both have.
+     *
+     * @param date any date in the month
+     * @return true if the month's availability is already known, even if it's being reloaded
+     */
+    private boolean loadAvailability(LocalDate date) {
+        LocalDate firstDay = datePicker.getFirstDayOfMonth(date);
+        LocalDate lastDay = datePicker.getLastDayOfMonth(date);
+        boolean loaded = availability.isLoaded(firstDay, lastDay);
+        availability.prefetchAdjacent(firstDay, lastDay);
+        CompletableFuture<Void> loading = availability.get(firstDay, lastDay);
+        if (!loading.isDone()) {
+            loading.whenCompleteAsync((ignored, error) -> {
+                if (error != null) {
+                    // already reported to the metrics by the cache
+                    asyncErrorHandler.accept(unwrap(error));
+                } else if (renderedKeyboard != Fingerprint.EMPTY) {
+                    // only once the menu has been sent, as there's nothing to edit before that
+                    scheduleEdit();
+                }
+            }, getCallbackExecutor());
+        }
+        return loaded;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * @return true if the menus subsystem should edit the message now
+     */
+    private boolean requestUpdate() {
+        if (editCoalescer == null || !editCoalescer.schedule(this)) {
+            return hasChanged();
         }
         return false;
     }
 
+    /**
+     * Edits the message from outside a click callback, through the edit coalescer if there is one.
+     */
+    private void scheduleEdit() {
+        if (editCoalescer == null || !editCoalescer.schedule(this)) {
+            editIfChanged();
+        }
+    }
+
+    /**
+     * Edits the message now if anything has changed since it was last rendered.
+     * Runs outside of any click, so failures are reported rather than thrown.
+     */
+    void editIfChanged() {
+        try {
+            if (expired || !hasChanged()) {
+                return;
+            }
+            update();
+        } catch (TelegramException ex) {
+            handleException(ex);
+        } catch (RuntimeException ex) {
+            // e.g. from the message supplier or the date picker, which would otherwise vanish into the scheduler
+            reportError(ex);
+        }
+    }
+
+    /**
+     * @return true if re-rendering would change the keyboard or the message, i.e. if the message needs editing
+     */
+    private boolean hasChanged() {
+        State state = this.state.get();
+        PackedDatePickerKeyboard keyboard = renderKeyboard(state);
+        TextBuilder message = supplyMessage();
+        long messageFingerprint = fingerprint(message);
+        if (keyboard.fingerprint() == renderedKeyboard && messageFingerprint == renderedMessage) {
+            return false;
+        }
+        pendingKeyboard = new PendingKeyboard(state, keyboard);
+        pendingMessage = new PendingMessage(message, messageFingerprint);
+        return true;
+    }
+
+    @Nullable
+    private TextBuilder supplyMessage() {
+        return messageSupplier != null ? messageSupplier.get() : super.getMenuMessage();
+    }
+
+    // messages are compared by the text they'd be sent as, as suppliers usually build a new one each time
+    private static long fingerprint(@Nullable TextBuilder message) {
+        return Fingerprint.of(message != null ? message.toHtml() : null);
+    }
+
+    // renders from a single snapshot, so a concurrent click can't mix two states into one keyboard
+    @Nonnull
+    private PackedDatePickerKeyboard renderKeyboard(@Nonnull State state) {
+        DatePickerOptions options = getOptions(state.getSelectedDate());
+        switch (state.getView()) {
+            case MONTH_GRID:
+                return PackedDatePickerKeyboard.of(datePicker.toMonthGrid(state.getSelectedMonth(), options));
+            case YEAR_GRID:
+                return PackedDatePickerKeyboard.of(datePicker.toYearGrid(state.getSelectedMonth(), options));
+            default:
+                LocalDate month = state.getSelectedMonth();
+                if (availability != null) {
+                    options = availability.applyNow(options, datePicker.getFirstDayOfMonth(month), datePicker.getLastDayOfMonth(month));
+                }
+                return datePicker.toPackedKeyboard(month, options);
+        }
+    }
+
+    @Nonnull
+    private DatePickerOptions getOptions(@Nonnull LocalDate selectedDate) {
+        SelectionOptions cached = selectionOptions;
+        if (cached != null && cached.getSelectedDate().isEqual(selectedDate)) {
+            return cached.getOptions();
+        }
+        DatePickerOptions options = datePickerOptions.toBuilder()
+                .dateHighlightedPredicate(date -> isDateHighlighted(date, selectedDate))
+                .metrics(metrics != null ? metrics : datePickerOptions.getMetrics())
+                .build();
+        selectionOptions = new SelectionOptions(selectedDate, options);
+        return options;
+    }
+
     @Override
     public TextBuilder getMenuMessage() {
-        return messageSupplier != null ? messageSupplier.get() : super.getMenuMessage();
+        PendingMessage pending = pendingMessage;
+        if (pending != null) {
+            pendingMessage = null;
+            renderedMessage = pending.getFingerprint();
+            return pending.getMessage();
+        }
+        TextBuilder message = supplyMessage();
+        renderedMessage = fingerprint(message);
+        return message;
+    }
+
+    /**
+     * Renders the menu as a keyboard to send without the menus subsystem, whose buttons carry their callbacks in the
+     * {@link DatePickerCallbackCodec#compact() compact format}, so that a {@link DatePickerCallbackRouter} on any node
+     * can decode them and pass them to {@link #onCallback(CallbackQueryEvent, DatePickerCallback)}.
+     *
+     * @return the keyboard, without any buttons once the menu has expired
+     */
+    @Nonnull
+    public InlineKeyboardMarkup toInlineKeyboard() {
+        DatePickerMetrics metrics = getMetrics();
+        long start = metrics != DatePickerMetrics.NOOP ? System.nanoTime() : 0;
+
+        PackedDatePickerKeyboard menu = takeKeyboard();
+        if (menu == null) {
+            return InlineKeyboardMarkup.builder().inlineKeyboard(Collections.emptyList()).build();
+        }
+        InlineKeyboardMarkup keyboard = menu.toInline(DatePickerCallbackCodec.compact());
+
+        if (metrics != DatePickerMetrics.NOOP) {
+            metrics.onMenuRendered(System.nanoTime() - start, menu.getButtonCount());
+        }
+        return keyboard;
+    }
+
+    /**
+     * Edits the message: through the keyboard updater if there is one, with the keyboard from
+     * {@link #toInlineKeyboard()}, or else through the menus subsystem.
+     */
+    @Override
+    public void update() {
+        if (keyboardUpdater == null) {
+            super.update();
+            return;
+        }
+        // the updater only edits the keyboard, so this only records that the message is as it was
+        getMenuMessage();
+        keyboardUpdater.accept(toInlineKeyboard());
     }
 
     @Override
     public List<MenuRow> getRows() {
-        DatePickerKeyboard menu = datePicker.toKeyboard(
-                selectedMonth,
-                datePickerOptions.toBuilder()
-                        .dateHighlightedPredicate(this::isDateHighlighted)
-                        .build()
+        DatePickerMetrics metrics = getMetrics();
+        long start = metrics != DatePickerMetrics.NOOP ? System.nanoTime() : 0;
+
+        PackedDatePickerKeyboard menu = takeKeyboard();
+        if (menu == null) {
+            renderedRows = null;
+            return Collections.emptyList();
+        }
+
+        RenderedRows previous = renderedRows;
+        List<MenuRow> rows = previous != null ? patchRows(previous, menu) : buildRows(menu);
+        renderedRows = new RenderedRows(menu, rows);
+
+        if (metrics != DatePickerMetrics.NOOP) {
+            metrics.onMenuRendered(System.nanoTime() - start, menu.getButtonCount());
+        }
+        return rows;
+    }
+
+    /**
+     * @return the keyboard to send, taken from hasChanged if it's still current, or null if the menu has expired
+     */
+    @Nullable
+    private PackedDatePickerKeyboard takeKeyboard() {
+        PendingKeyboard pending = pendingKeyboard;
+        pendingKeyboard = null;
+        if (expired) {
+            renderedKeyboard = Fingerprint.EMPTY;
+            return null;
+        }
+        // a click since hasChanged rendered the keyboard means rendering it again
+        State state = this.state.get();
+        PackedDatePickerKeyboard menu = pending != null && pending.getState() == state ? pending.getKeyboard() : renderKeyboard(state);
+        renderedKeyboard = menu.fingerprint();
+        return menu;
+    }
+
+    @Nonnull
+    private List<MenuRow> buildRows(@Nonnull PackedDatePickerKeyboard menu) {
+        List<MenuRow> rows = new ArrayList<>(menu.getRowCount());
+        for (int row = 0; row < menu.getRowCount(); row++) {
+            rows.add(buildRow(menu, row));
+        }
+        return rows;
+    }
+
+    @Nonnull
+    private MenuRow buildRow(@Nonnull PackedDatePickerKeyboard menu, int row) {
+        List<MenuButton> buttons = new ArrayList<>(menu.getRowLength(row));
+        for (int column = 0; column < menu.getRowLength(row); column++) {
+            buttons.add(wrap(menu.getButton(row, column)));
+        }
+        return new MenuRow(buttons);
+    }
+
+    @Nonnull
+    private DatePickerMenuButton wrap(@Nonnull DatePickerButton button) {
+        return new DatePickerMenuButton(
+                button,
+                monthClickHandler,
+                dateClickHandler,
+                monthGridClickHandler,
+                yearGridClickHandler
         );
+    }
+
+    /**
+     * Renders rows by swapping the changed cells into the previous rows. Rows already handed out are never modified,
+     * as the menus subsystem may still be using them; a changed row is copied, and unchanged rows are shared.
+     *
+     * @return the previous rows if nothing changed
+     */
+    @Nonnull
+    private List<MenuRow> patchRows(@Nonnull RenderedRows previous, @Nonnull PackedDatePickerKeyboard menu) {
+        PackedDatePickerKeyboard previousMenu = previous.getKeyboard();
+        if (previousMenu.getRowCount() != menu.getRowCount()) {
+            return buildRows(menu);
+        }
+        List<MenuRow> rows = null;
+        for (int row = 0; row < menu.getRowCount(); row++) {
+            MenuRow patched = patchRow(previous.getRows().get(row), previousMenu, menu, row);
+            if (patched != null) {
+                if (rows == null) {
+                    rows = new ArrayList<>(previous.getRows());
+                }
+                rows.set(row, patched);
+            }
+        }
+        return rows != null ? rows : previous.getRows();
+    }
+
+    /**
+     * @return the row with its changed cells swapped, or null if none changed
+     */
+    @Nullable
+    private MenuRow patchRow(@Nonnull MenuRow previousRow, @Nonnull PackedDatePickerKeyboard previousMenu,
+                             @Nonnull PackedDatePickerKeyboard menu, int row) {
+        if (previousMenu.getRowLength(row) != menu.getRowLength(row)) {
+            return buildRow(menu, row);
+        }
+        List<MenuButton> buttons = null;
+        for (int column = 0; column < menu.getRowLength(row); column++) {
+            DatePickerButton button = menu.getButton(row, column);
+            if (!isSameButton(previousMenu.getButton(row, column), button)) {
+                if (buttons == null) {
+                    buttons = new ArrayList<>(previousRow.getButtons());
+                }
+                buttons.set(column, wrap(button));
+            }
+        }
+        return buttons != null ? new MenuRow(buttons) : null;
+    }
 
-        return menu.getRows().stream()
-                .map(r -> new MenuRow(r.getButtons()
-                        .stream()
-                        .map(b -> DatePickerMenuButton.builder()
-                                .button(b)
-                                .monthSelectionConsumer(this::onClickMonth)
-                                .dateSelectionConsumer(this::onClickDate)
-                                .build())
-                        .collect(Collectors.toList())))
-                .collect(Collectors.toList());
+    // cells of cached month layouts are shared, so most unchanged cells are the very same button
+    private static boolean isSameButton(@Nonnull DatePickerButton previous, @Nonnull DatePickerButton button) {
+        return previous == button
+                || (previous.getType() == button.getType()
+                    && Objects.equals(previous.getLabel(), button.getLabel())
+                    && Objects.equals(previous.getDate(), button.getDate()));
     }
 
     @Override
     public void handleException(TelegramException exception) {
+        getMetrics().onError(exception);
         errorHandler.accept(exception);
     }
 
@@ -26,6 +26,12 @@ public class DatePickerMenuButton extends MenuButton {
     @Nullable
     private final BiPredicate<CallbackQueryEvent, LocalDate> dateSelectionConsumer;
 
+    @Nullable
+    private final BiPredicate<CallbackQueryEvent, LocalDate> monthGridConsumer;
+
+    @Nullable
+    private final BiPredicate<CallbackQueryEvent, LocalDate> yearGridConsumer;
+
     @Nonnull
     @Override
     public String getLabel() {
@@ -45,6 +51,16 @@ public class DatePickerMenuButton extends MenuButton {
                     return dateSelectionConsumer.test(event, button.getDate());
                 }
                 break;
+            case OPEN_MONTH_GRID:
+                if (monthGridConsumer != null) {
+                    return monthGridConsumer.test(event, button.getDate());
+                }
+                break;
+            case OPEN_YEAR_GRID:
+                if (yearGridConsumer != null) {
+                    return yearGridConsumer.test(event, button.getDate());
+                }
+                break;
         }
         return false;
     }
@@ -0,0 +1,201 @@
+package com.jtelegram.ext.datepicker.menu;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Bounds the lifetime and number of live {@link DatePickerMenu}s.
+ *
+ * Menus built with a registry are tracked from construction. A menu is evicted once it hasn't been clicked for the
+ * idle timeout, or when tracking it would take the registry over its maximum size (least recently clicked first).
+ * Evicted menus stop reacting to clicks and render no buttons, so calling {@link DatePickerMenu#update()} from the
+ * eviction listener removes the keyboard from the message. The listener is also the place to unregister the menu from
+ * the menus subsystem. Evicted menus' states are also removed from their {@link com.jtelegram.ext.datepicker.state.MenuStateStore},
+ * if they have one, so no other node resumes them. Exceptions thrown by the listener are reported to the menu's
+ * metrics and async error handler.
+ *
+ * Expired menus are only found by {@link #evictExpired()}; give the registry a scheduler to have it run periodically.
+ *
+ * @author Nick Robson
+ */
+public class DatePickerMenuRegistry {
+
+    public enum EvictionCause {
+        /**
+         * The menu wasn't clicked within the idle timeout
+         */
+        EXPIRED,
+
+        /**
+         * The registry was full and this was the least recently clicked menu
+         */
+        SIZE,
+
+        /**
+         * The menu was removed through {@link #remove(DatePickerMenu)}
+         */
+        EXPLICIT
+    }
+
+    public static final int UNBOUNDED = -1;
+
+    @Getter
+    @Nullable
+    private final Duration idleTimeout;
+
+    @Getter
+    private final int maximumSize;
+
+    @Nonnull
+    private final BiConsumer<DatePickerMenu, EvictionCause> evictionListener;
+
+    // access-ordered, so the least recently clicked menu comes first
+    @Nonnull
+    private final LinkedHashMap<DatePickerMenu, Long> lastClicked = new LinkedHashMap<>(16, 0.75f, true);
+
+    @Nullable
+    private final ScheduledFuture<?> sweeper;
+
+    @Builder
+    protected DatePickerMenuRegistry(
+            @Nullable Duration idleTimeout,
+            @Nullable Integer maximumSize,
+            @Nullable BiConsumer<DatePickerMenu, EvictionCause> evictionListener,
+            @Nullable ScheduledExecutorService scheduler) {
+        if (idleTimeout != null && (idleTimeout.isNegative() || idleTimeout.isZero())) {
+            throw new IllegalArgumentException("idleTimeout must be positive");
+        }
+        if (maximumSize != null && maximumSize <= 0 && maximumSize != UNBOUNDED) {
+            throw new IllegalArgumentException("maximumSize must be positive or UNBOUNDED");
+        }
+        this.idleTimeout = idleTimeout;
+        this.maximumSize = maximumSize != null ? maximumSize : UNBOUNDED;
+        this.evictionListener = evictionListener != null ? evictionListener : (m, c) -> {};
+
+        if (scheduler != null && idleTimeout != null) {
+            long period = Math.max(TimeUnit.SECONDS.toMillis(1), idleTimeout.toMillis() / 2);
+            this.sweeper = scheduler.scheduleAtFixedRate(this::evictExpired, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.sweeper = null;
+        }
+    }
+
+    /**
+     * @return the number of menus currently tracked
+     */
+    public int getLiveCount() {
+        synchronized (lastClicked) {
+            return lastClicked.size();
+        }
+    }
+
+    /**
+     * Evicts every menu that hasn't been clicked within the idle timeout.
+     *
+     * @return the number of menus evicted
+     */
+    public int evictExpired() {
+        if (idleTimeout == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long timeout = idleTimeout.toNanos();
+        List<DatePickerMenu> expired = new ArrayList<>();
+        synchronized (lastClicked) {
+            Iterator<Map.Entry<DatePickerMenu, Long>> iterator = lastClicked.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<DatePickerMenu, Long> entry = iterator.next();
+                if (now - entry.getValue() < timeout) {
+                    break;
+                }
+                iterator.remove();
+                expired.add(entry.getKey());
+            }
+        }
+        for (DatePickerMenu menu : expired) {
+            evict(menu, EvictionCause.EXPIRED);
+        }
+        return expired.size();
+    }
+
+    /**
+     * Stops tracking a menu and evicts it.
+     *
+     * @param menu the menu
+     * @return true if the menu was being tracked
+     */
+    public boolean remove(@Nonnull DatePickerMenu menu) {
+        boolean removed;
+        synchronized (lastClicked) {
+            removed = lastClicked.remove(menu) != null;
+        }
+        if (removed) {
+            evict(menu, EvictionCause.EXPLICIT);
+        }
+        return removed;
+    }
+
+    /**
+     * Evicts every menu and stops the periodic sweep, if any.
+     */
+    public void close() {
+        if (sweeper != null) {
+            sweeper.cancel(false);
+        }
+        List<DatePickerMenu> menus;
+        synchronized (lastClicked) {
+            menus = new ArrayList<>(lastClicked.keySet());
+            lastClicked.clear();
+        }
+        for (DatePickerMenu menu : menus) {
+            evict(menu, EvictionCause.EXPLICIT);
+        }
+    }
+
+    void track(@Nonnull DatePickerMenu menu) {
+        DatePickerMenu overflow = null;
+        synchronized (lastClicked) {
+            lastClicked.put(menu, System.nanoTime());
+            if (maximumSize != UNBOUNDED && lastClicked.size() > maximumSize) {
+                Iterator<DatePickerMenu> iterator = lastClicked.keySet().iterator();
+                overflow = iterator.next();
+                iterator.remove();
+            }
+        }
+        if (overflow != null) {
+            evict(overflow, EvictionCause.SIZE);
+        }
+    }
+
+    /**
+     * @return false if the menu is no longer tracked
+     */
+    boolean touch(@Nonnull DatePickerMenu menu) {
+        synchronized (lastClicked) {
+            return lastClicked.replace(menu, System.nanoTime()) != null;
+        }
+    }
+
+    private void evict(@Nonnull DatePickerMenu menu, @Nonnull EvictionCause cause) {
+        menu.expire();
+        try {
+            evictionListener.accept(menu, cause);
+        } catch (RuntimeException ex) {
+            // a failing listener mustn't stop the other evictions, or cancel the periodic sweep
+            menu.reportError(ex);
+        }
+    }
+
+}
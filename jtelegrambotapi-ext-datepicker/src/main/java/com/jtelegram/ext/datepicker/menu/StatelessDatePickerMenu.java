@@ -0,0 +1,282 @@
+package com.jtelegram.ext.datepicker.menu;
+
+import com.jtelegram.api.events.inline.keyboard.CallbackQueryEvent;
+import com.jtelegram.api.inline.keyboard.InlineKeyboardButton;
+import com.jtelegram.api.inline.keyboard.InlineKeyboardMarkup;
+import com.jtelegram.api.inline.keyboard.InlineKeyboardRow;
+import com.jtelegram.ext.datepicker.DatePickerExtension;
+import com.jtelegram.ext.datepicker.availability.DateAvailabilityCache;
+import com.jtelegram.ext.datepicker.availability.MonthAvailability;
+import com.jtelegram.ext.datepicker.callback.CompactCallbackCodec;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallback;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallbackHandler;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallbackRouter;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButton;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonRow;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonType;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerKeyboard;
+import com.jtelegram.ext.datepicker.metrics.DatePickerMetrics;
+import com.jtelegram.ext.datepicker.picker.DatePicker;
+import com.jtelegram.ext.datepicker.picker.DatePickerOptions;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import lombok.Builder;
+
+/**
+ * A date picker menu that keeps no per-message state on the server.
+ *
+ * Unlike {@link DatePickerMenu}, this isn't registered with the menus subsystem. Every button carries the visible month
+ * and the selected date in its callback data (see {@link CompactCallbackCodec}),
+ * so one instance can serve any number of open calendars, and clicks can be handled on any node, even after a restart.
+ *
+ * Register it with a {@link DatePickerCallbackRouter} to handle clicks, and send the keyboard from {@link #render(Locale, LocalDate)}.
+ * The keyboard updater is given the re-rendered keyboard whenever a click changes it, and is expected to edit the message.
+ * Each click is reported to the metrics once, as either handled or rejected.
+ *
+ * Like {@link DatePickerMenu}, months can be rendered with availability from a {@link DateAvailabilityCache}, in which
+ * case the neighbouring months are prefetched, and navigating to a month that has never loaded updates the keyboard
+ * once it has. If it fails to load, or the keyboard updater fails once it has, the error goes to the async error
+ * handler.
+ *
+ * @author Nick Robson
+ */
+public class StatelessDatePickerMenu {
+
+    @Nonnull
+    private final Function<Locale, DatePicker> datePickers;
+
+    @Nonnull
+    private final DatePickerOptions datePickerOptions;
+
+    @Nullable
+    private final DateAvailabilityCache availability;
+
+    @Nonnull
+    private final BiPredicate<CallbackQueryEvent, LocalDate> monthSelectionPredicate;
+
+    @Nonnull
+    private final BiPredicate<CallbackQueryEvent, LocalDate> dateSelectionPredicate;
+
+    @Nonnull
+    private final BiConsumer<CallbackQueryEvent, LocalDate> dateSelectionConsumer;
+
+    @Nonnull
+    private final BiConsumer<CallbackQueryEvent, InlineKeyboardMarkup> keyboardUpdater;
+
+    @Nonnull
+    private final Consumer<Throwable> asyncErrorHandler;
+
+    @Nullable
+    private final DatePickerMetrics metrics;
+
+    @Builder
+    protected StatelessDatePickerMenu(
+            @Nonnull BiConsumer<CallbackQueryEvent, InlineKeyboardMarkup> keyboardUpdater,
+            @Nullable Function<Locale, DatePicker> datePickers,
+            @Nullable DatePickerOptions datePickerOptions,
+            @Nullable DateAvailabilityCache availability,
+            @Nullable BiPredicate<CallbackQueryEvent, LocalDate> monthSelectionPredicate,
+            @Nullable BiPredicate<CallbackQueryEvent, LocalDate> dateSelectionPredicate,
+            @Nullable BiConsumer<CallbackQueryEvent, LocalDate> dateSelectionConsumer,
+            @Nullable Consumer<Throwable> asyncErrorHandler,
+            @Nullable DatePickerMetrics metrics) {
+        this.keyboardUpdater = keyboardUpdater;
+        this.datePickers = datePickers != null ? datePickers : DatePickerExtension::forLocale;
+        this.datePickerOptions = datePickerOptions != null ? datePickerOptions : DatePickerOptions.builder().build();
+        this.availability = availability;
+        this.monthSelectionPredicate = monthSelectionPredicate != null ? monthSelectionPredicate : (e, d) -> true;
+        this.dateSelectionPredicate = dateSelectionPredicate != null ? dateSelectionPredicate : (e, d) -> true;
+        this.dateSelectionConsumer = dateSelectionConsumer != null ? dateSelectionConsumer : (e, d) -> {};
+        this.asyncErrorHandler = asyncErrorHandler != null ? asyncErrorHandler : Throwable::printStackTrace;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Routes date and month clicks from the given router to this menu.
+     * A router dispatches by button type alone, so it can only serve one menu.
+     *
+     * @param router the router
+     * @throws IllegalStateException if the router already routes date or month clicks elsewhere
+     */
+    public void register(@Nonnull DatePickerCallbackRouter router) {
+        Map<DatePickerButtonType, DatePickerCallbackHandler> handlers = new EnumMap<>(DatePickerButtonType.class);
+        handlers.put(DatePickerButtonType.SELECT_DATE, this::onClickDate);
+        handlers.put(DatePickerButtonType.GOTO_MONTH, this::onNavigate);
+        handlers.put(DatePickerButtonType.OPEN_MONTH_GRID, this::onNavigate);
+        handlers.put(DatePickerButtonType.OPEN_YEAR_GRID, this::onNavigate);
+        router.claim(handlers);
+    }
+
+    /**
+     * Renders the month containing the selected date.
+     *
+     * @param locale the locale of the calendar
+     * @param selectedDate the selected date
+     * @return the keyboard
+     */
+    @Nonnull
+    public InlineKeyboardMarkup render(@Nonnull Locale locale, @Nonnull LocalDate selectedDate) {
+        return render(locale, selectedDate, selectedDate);
+    }
+
+    /**
+     * Renders a month, carrying the selected date in every button.
+     *
+     * @param locale the locale of the calendar
+     * @param selectedDate the selected date
+     * @param month any date in the month to show
+     * @return the keyboard
+     */
+    @Nonnull
+    public InlineKeyboardMarkup render(@Nonnull Locale locale, @Nonnull LocalDate selectedDate, @Nonnull LocalDate month) {
+        return render(locale, selectedDate, month, DatePickerButtonType.GOTO_MONTH);
+    }
+
+    /**
+     * @param view GOTO_MONTH for the month itself, or OPEN_MONTH_GRID or OPEN_YEAR_GRID for a grid around it
+     */
+    @Nonnull
+    private InlineKeyboardMarkup render(@Nonnull Locale locale, @Nonnull LocalDate selectedDate, @Nonnull LocalDate month, @Nonnull DatePickerButtonType view) {
+        DatePicker datePicker = datePickers.apply(locale);
+        DatePickerOptions options = datePickerOptions.toBuilder()
+                .dateHighlightedPredicate(date -> isDateHighlighted(date, selectedDate))
+                .metrics(metrics != null ? metrics : datePickerOptions.getMetrics())
+                .build();
+        DatePickerKeyboard keyboard;
+        switch (view) {
+            case OPEN_MONTH_GRID:
+                keyboard = datePicker.toMonthGrid(month, options);
+                break;
+            case OPEN_YEAR_GRID:
+                keyboard = datePicker.toYearGrid(month, options);
+                break;
+            default:
+                keyboard = datePicker.toKeyboard(month, withAvailability(datePicker, options, month));
+                break;
+        }
+
+        long selectedEpochDay = selectedDate.toEpochDay();
+        List<InlineKeyboardRow> rows = new ArrayList<>(keyboard.getRows().size());
+        for (DatePickerButtonRow row : keyboard.getRows()) {
+            List<InlineKeyboardButton> buttons = new ArrayList<>(row.getButtons().size());
+            for (DatePickerButton button : row.getButtons()) {
+                LocalDate date = button.getDate();
+                buttons.add(InlineKeyboardButton.builder()
+                        .label(button.getLabel())
+                        .callbackData(CompactCallbackCodec.INSTANCE.encode(
+                                button.getType(),
+                                date != null ? date.toEpochDay() : 0,
+                                keyboard.getLocale(),
+                                selectedEpochDay))
+                        .build());
+            }
+            rows.add(InlineKeyboardRow.builder().buttons(buttons).build());
+        }
+        return InlineKeyboardMarkup.builder().inlineKeyboard(rows).build();
+    }
+
+    @Nonnull
+    private DatePickerOptions withAvailability(@Nonnull DatePicker datePicker, @Nonnull DatePickerOptions options, @Nonnull LocalDate month) {
+        if (availability == null) {
+            return options;
+        }
+        // a month of a non-ISO calendar may span two ISO months
+        LocalDate firstDay = datePicker.getFirstDayOfMonth(month);
+        LocalDate lastDay = datePicker.getLastDayOfMonth(month);
+        availability.prefetchAdjacent(firstDay, lastDay);
+        return availability.applyNow(options, firstDay, lastDay);
+    }
+
+    private boolean isDateDisabled(LocalDate date) {
+        if (datePickerOptions.isDateDisabled(date)) {
+            return true;
+        }
+        MonthAvailability loaded = availability != null ? availability.getNow(YearMonth.from(date)) : null;
+        return loaded != null && loaded.getDisabledDates() != null && loaded.getDisabledDates().contains(date);
+    }
+
+    @Nonnull
+    private DatePickerMetrics getMetrics() {
+        return metrics != null ? metrics : DatePickerMetrics.getDefault();
+    }
+
+    private boolean isDateHighlighted(LocalDate date, LocalDate selectedDate) {
+        return date.isEqual(selectedDate)
+                || (this.datePickerOptions.getDateHighlightedPredicate() != null
+                    && this.datePickerOptions.getDateHighlightedPredicate().test(date));
+    }
+
+    private void onClickDate(CallbackQueryEvent event, DatePickerCallback callback) {
+        Locale locale = callback.getLocale();
+        if (!callback.hasSelection() || locale == null) {
+            // not rendered by a stateless menu
+            return;
+        }
+        LocalDate date = callback.getDate();
+        if (isDateDisabled(date) || !dateSelectionPredicate.test(event, date)) {
+            getMetrics().onCallbackRejected(DatePickerButtonType.SELECT_DATE);
+            return;
+        }
+        getMetrics().onCallbackHandled(DatePickerButtonType.SELECT_DATE);
+        dateSelectionConsumer.accept(event, date);
+        if (callback.getSelectedEpochDay() != callback.getEpochDay()) {
+            keyboardUpdater.accept(event, render(locale, date));
+        }
+    }
+
+    private void onNavigate(CallbackQueryEvent event, DatePickerCallback callback) {
+        Locale locale = callback.getLocale();
+        LocalDate selectedDate = callback.getSelectedDate();
+        if (selectedDate == null || locale == null) {
+            // not rendered by a stateless menu
+            return;
+        }
+        LocalDate date = callback.getDate();
+        DatePickerButtonType type = callback.getType();
+        if (!monthSelectionPredicate.test(event, date)) {
+            getMetrics().onCallbackRejected(type);
+            return;
+        }
+        getMetrics().onCallbackHandled(type);
+        if (availability != null && type == DatePickerButtonType.GOTO_MONTH) {
+            DatePicker datePicker = datePickers.apply(locale);
+            LocalDate firstDay = datePicker.getFirstDayOfMonth(date);
+            LocalDate lastDay = datePicker.getLastDayOfMonth(date);
+            if (!availability.isLoaded(firstDay, lastDay)) {
+                availability.get(firstDay, lastDay).whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        // already reported to the metrics by the cache, and the user can click again
+                        asyncErrorHandler.accept(unwrap(error));
+                        return;
+                    }
+                    try {
+                        keyboardUpdater.accept(event, render(locale, selectedDate, date, type));
+                    } catch (RuntimeException ex) {
+                        // this runs wherever the provider completed, where nothing else would see it
+                        getMetrics().onError(ex);
+                        asyncErrorHandler.accept(ex);
+                    }
+                });
+                return;
+            }
+        }
+        keyboardUpdater.accept(event, render(locale, selectedDate, date, type));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.jtelegram.ext.datepicker.metrics;
+
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonType;
+import java.util.Locale;
+import java.util.Objects;
+import javax.annotation.Nonnull;
+
+/**
+ * Receives measurements from the date picker, to be forwarded to whichever metrics or tracing library you use.
+ *
+ * Every method does nothing by default, so implementations only override what they record. Methods are called on the
+ * thread doing the work, often a bot's update thread, so they should be cheap and must not throw.
+ *
+ * Install one globally with {@link #setDefault(DatePickerMetrics)}; menus can also be given their own.
+ *
+ * @author Nick Robson
+ */
+public interface DatePickerMetrics {
+
+    /**
+     * Records nothing. When this is installed, the date picker doesn't read the clock at all.
+     */
+    DatePickerMetrics NOOP = new DatePickerMetrics() {};
+
+    /**
+     * @return the metrics used by anything that wasn't given its own
+     */
+    @Nonnull
+    static DatePickerMetrics getDefault() {
+        return DefaultMetrics.metrics;
+    }
+
+    /**
+     * Sets the metrics used by anything that wasn't given its own.
+     *
+     * @param metrics the metrics, or {@link #NOOP} to stop recording
+     */
+    static void setDefault(@Nonnull DatePickerMetrics metrics) {
+        DefaultMetrics.metrics = Objects.requireNonNull(metrics, "metrics cannot be null");
+    }
+
+    /**
+     * Called after a date picker renders a month.
+     *
+     * @param locale the locale of the keyboard
+     * @param nanos how long rendering took
+     * @param buttons the number of buttons in the keyboard
+     */
+    default void onKeyboardRendered(@Nonnull Locale locale, long nanos, int buttons) {}
+
+    /**
+     * Called after a menu renders its rows, including rendering the keyboard.
+     *
+     * @param nanos how long rendering took
+     * @param buttons the number of buttons in the menu
+     */
+    default void onMenuRendered(long nanos, int buttons) {}
+
+    /**
+     * Called when a month's layout is found in the layout cache.
+     */
+    default void onLayoutCacheHit() {}
+
+    /**
+     * Called when a month's layout isn't in the layout cache, after it's been created.
+     *
+     * @param nanos how long creating the layout took
+     */
+    default void onLayoutCacheMiss(long nanos) {}
+
+    /**
+     * Called when a menu accepts a click. Each click is reported once, either as handled or as rejected.
+     *
+     * @param type the type of button clicked
+     */
+    default void onCallbackHandled(@Nonnull DatePickerButtonType type) {}
+
+    /**
+     * Called when a click is refused, either by a selection predicate or because the date is disabled.
+     *
+     * @param type the type of button clicked
+     */
+    default void onCallbackRejected(@Nonnull DatePickerButtonType type) {}
+
+    /**
+     * Called when a menu fails, e.g. when editing its message, before its error handler is called.
+     *
+     * @param error the error
+     */
+    default void onError(@Nonnull Throwable error) {}
+
+}
@@ -0,0 +1,17 @@
+package com.jtelegram.ext.datepicker.metrics;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Holds the global {@link DatePickerMetrics}, as interfaces can't have mutable fields.
+ *
+ * @author Nick Robson
+ */
+final class DefaultMetrics {
+
+    @Nonnull
+    static volatile DatePickerMetrics metrics = DatePickerMetrics.NOOP;
+
+    private DefaultMetrics() {}
+
+}
@@ -0,0 +1,485 @@
+package com.jtelegram.ext.datepicker.picker;
+
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButton;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonRow;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonType;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerKeyboard;
+import com.jtelegram.ext.datepicker.keyboard.PackedDatePickerKeyboard;
+import com.jtelegram.ext.datepicker.metrics.DatePickerMetrics;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.chrono.ChronoLocalDate;
+import java.time.chrono.Chronology;
+import java.time.chrono.IsoChronology;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.FormatStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.WeekFields;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import lombok.Getter;
+
+/**
+ * A date picker for any {@link Chronology}, e.g. the Hijrah, Japanese, Thai Buddhist or Minguo calendars.
+ *
+ * Everything that only depends on the locale, i.e. the weekday headers and the day numbers, is formatted once when
+ * the picker is created. A month then only needs its first day, its length and its title, from which its layout is
+ * built and cached in the {@link MonthLayoutCache}, so rendering any calendar costs the same as rendering
+ * the Gregorian one, which is just this picker with the ISO chronology (see {@link GregorianDatePicker}).
+ *
+ * Buttons still carry ISO dates. Months in lunar calendars don't line up with ISO months, which the original
+ * callback format can't express, so their keyboards should be sent with the compact callback codec.
+ *
+ * @author Nick Robson
+ */
+public class ChronologyDatePicker implements DatePicker {
+
+    private static final DatePickerOptions DEFAULT_OPTIONS = DatePickerOptions.builder().build();
+    private static final int GRID_COLUMNS = 3;
+    private static final int YEARS_PER_DECADE = 10;
+    private static final int MAX_DAYS_IN_MONTH = 31;
+
+    @Getter
+    @Nonnull
+    private final Chronology chronology;
+
+    @Nonnull private final Locale locale;
+    @Nonnull private final DateTimeFormatter monthAndYearFormat;
+    @Nonnull private final DateTimeFormatter shortMonthFormat;
+    @Nonnull private final DateTimeFormatter yearFormat;
+    @Nonnull private final MonthLayoutCache layoutCache;
+    @Nonnull private final String[] weekdayLabels;
+    @Nonnull private final String[] dayLabels;
+    private final int weekStart;
+
+    // the year grid's padding, one per picker as buttons only cache their encoding for one locale and codec at a time
+    @Nonnull private final DatePickerButton padding = DatePickerButton.builder().type(DatePickerButtonType.LABEL).build();
+
+    // created once, rather than per cache lookup
+    @Nonnull private final LongFunction<MonthLayout> layoutLoader = this::createLayout;
+
+    public ChronologyDatePicker(@Nonnull Locale locale, @Nonnull Chronology chronology) {
+        this(locale, chronology, MonthLayoutCache.getDefault());
+    }
+
+    public ChronologyDatePicker(@Nonnull Locale locale, @Nonnull Chronology chronology, @Nonnull MonthLayoutCache layoutCache) {
+        this.locale = Objects.requireNonNull(locale, "locale cannot be null");
+        this.chronology = Objects.requireNonNull(chronology, "chronology cannot be null");
+        this.layoutCache = layoutCache;
+        this.weekStart = WeekFields.of(locale).getFirstDayOfWeek().getValue();
+
+        if (chronology == IsoChronology.INSTANCE) {
+            this.monthAndYearFormat = DateTimeFormatter.ofPattern("MMMM y", locale);
+            this.yearFormat = DateTimeFormatter.ofPattern("y", locale);
+        } else {
+            // other calendars need their era to make sense, and put it in different places, so follow the locale
+            String datePattern = DateTimeFormatterBuilder.getLocalizedDateTimePattern(FormatStyle.LONG, null, chronology, locale);
+            this.monthAndYearFormat = DateTimeFormatter.ofPattern(withoutFields(datePattern, "dE"), locale);
+            this.yearFormat = DateTimeFormatter.ofPattern(withoutFields(datePattern, "MLdE"), locale);
+        }
+        this.shortMonthFormat = DateTimeFormatter.ofPattern("MMM", locale);
+
+        // weekday names, starting from the locale's first day of the week; 2018-01-01 was a Monday
+        DateTimeFormatter shortDayFormat = DateTimeFormatter.ofPattern("EE", locale);
+        LocalDate firstDayOfWeek = LocalDate.of(2018, 1, weekStart);
+        this.weekdayLabels = new String[MonthLayout.DAYS_IN_WEEK];
+        for (int i = 0; i < weekdayLabels.length; i++) {
+            weekdayLabels[i] = shortDayFormat.format(firstDayOfWeek.plusDays(i));
+        }
+
+        // day numbers are the same in every calendar, so each month takes a prefix of them
+        DateTimeFormatter dayNumberFormat = DateTimeFormatter.ofPattern("d", locale);
+        this.dayLabels = new String[MAX_DAYS_IN_MONTH];
+        for (int i = 0; i < dayLabels.length; i++) {
+            dayLabels[i] = dayNumberFormat.format(LocalDate.of(2018, 1, i + 1));
+        }
+    }
+
+    /**
+     * Creates a picker for the calendar a locale asks for through its {@code -u-ca-} extension,
+     * e.g. {@code ar-SA-u-ca-islamic-umalqura}, or a {@link GregorianDatePicker} if it doesn't ask for one.
+     *
+     * @param locale the locale
+     * @return the picker
+     * @see Chronology#ofLocale(Locale)
+     */
+    @Nonnull
+    public static ChronologyDatePicker of(@Nonnull Locale locale) {
+        Chronology chronology = Chronology.ofLocale(locale);
+        return chronology == IsoChronology.INSTANCE ? new GregorianDatePicker(locale) : new ChronologyDatePicker(locale, chronology);
+    }
+
+    @Nonnull
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    @Nonnull
+    @Override
+    public DatePickerKeyboard toKeyboard(@Nonnull LocalDate date, @Nullable DatePickerOptions options) {
+        Objects.requireNonNull(date, "date cannot be null");
+
+        DatePickerOptions renderOptions = options != null ? options : DEFAULT_OPTIONS;
+        DatePickerMetrics metrics = renderOptions.getMetricsOrDefault();
+        long start = metrics != DatePickerMetrics.NOOP ? System.nanoTime() : 0;
+        return rendered(metrics, start, getLayout(date, metrics).render(renderOptions));
+    }
+
+    @Nonnull
+    @Override
+    public PackedDatePickerKeyboard toPackedKeyboard(@Nonnull LocalDate date, @Nullable DatePickerOptions options) {
+        Objects.requireNonNull(date, "date cannot be null");
+
+        DatePickerOptions renderOptions = options != null ? options : DEFAULT_OPTIONS;
+        DatePickerMetrics metrics = renderOptions.getMetricsOrDefault();
+        long start = metrics != DatePickerMetrics.NOOP ? System.nanoTime() : 0;
+        PackedDatePickerKeyboard keyboard = getLayout(date, metrics).renderPacked(renderOptions);
+        if (metrics != DatePickerMetrics.NOOP) {
+            metrics.onKeyboardRendered(locale, System.nanoTime() - start, keyboard.getButtonCount());
+        }
+        return keyboard;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * A month is highlighted if any of its days are, and disabled if all of its days are.
+     * Note that a highlight predicate is tested against every day of the year.
+     */
+    @Nonnull
+    @Override
+    public DatePickerKeyboard toMonthGrid(@Nonnull LocalDate date, @Nullable DatePickerOptions options) {
+        Objects.requireNonNull(date, "date cannot be null");
+
+        DatePickerOptions renderOptions = options != null ? options : DEFAULT_OPTIONS;
+        DatePickerMetrics metrics = renderOptions.getMetricsOrDefault();
+        long start = metrics != DatePickerMetrics.NOOP ? System.nanoTime() : 0;
+        return rendered(metrics, start, createMonthGrid(chronology.date(date).get(ChronoField.YEAR), renderOptions));
+    }
+
+    @Nonnull
+    @Override
+    public DatePickerKeyboard toYearGrid(@Nonnull LocalDate date, @Nullable DatePickerOptions options) {
+        Objects.requireNonNull(date, "date cannot be null");
+
+        DatePickerMetrics metrics = (options != null ? options : DEFAULT_OPTIONS).getMetricsOrDefault();
+        long start = metrics != DatePickerMetrics.NOOP ? System.nanoTime() : 0;
+        return rendered(metrics, start, createYearGrid(chronology.date(date).get(ChronoField.YEAR)));
+    }
+
+    @Override
+    public void prewarm(@Nonnull YearMonth from, @Nonnull YearMonth to) {
+        // step through this calendar's months, which may not start in every ISO month
+        LocalDate end = to.atEndOfMonth();
+        for (LocalDate day = getFirstDayOfMonth(from.atDay(1)); !day.isAfter(end); day = getLastDayOfMonth(day).plusDays(1)) {
+            toKeyboard(day);
+        }
+    }
+
+    @Nonnull
+    @Override
+    public LocalDate getFirstDayOfMonth(@Nonnull LocalDate date) {
+        return date.minusDays(chronology.date(date).get(ChronoField.DAY_OF_MONTH) - 1);
+    }
+
+    @Nonnull
+    @Override
+    public LocalDate getLastDayOfMonth(@Nonnull LocalDate date) {
+        ChronoLocalDate chronoDate = chronology.date(date);
+        return date.plusDays(chronoDate.lengthOfMonth() - chronoDate.get(ChronoField.DAY_OF_MONTH));
+    }
+
+    @Nonnull
+    private DatePickerKeyboard rendered(@Nonnull DatePickerMetrics metrics, long start, @Nonnull DatePickerKeyboard keyboard) {
+        if (metrics != DatePickerMetrics.NOOP) {
+            metrics.onKeyboardRendered(locale, System.nanoTime() - start, keyboard.getButtonCount());
+        }
+        return keyboard;
+    }
+
+    /**
+     * Gets the precomputed layout of the month containing a date, creating and caching it if needed.
+     *
+     * @param date any date in the month
+     * @return the layout for the month in this picker's locale and calendar
+     */
+    @Nonnull
+    public MonthLayout getLayout(@Nonnull LocalDate date) {
+        return getLayout(date, DatePickerMetrics.getDefault());
+    }
+
+    /**
+     * Gets the precomputed layout of the month containing a date, creating and caching it if needed.
+     *
+     * @param date any date in the month
+     * @param metrics where to report the layout cache hit or miss
+     * @return the layout for the month in this picker's locale and calendar
+     */
+    @Nonnull
+    public MonthLayout getLayout(@Nonnull LocalDate date, @Nonnull DatePickerMetrics metrics) {
+        // for ISO dates this converts nothing, so finding the month doesn't allocate
+        long firstEpochDay = date.toEpochDay() - chronology.date(date).get(ChronoField.DAY_OF_MONTH) + 1;
+        return layoutCache.get(locale, chronology, firstEpochDay, layoutLoader, metrics);
+    }
+
+    @Nonnull
+    private MonthLayout createLayout(long firstEpochDay) {
+        ChronoLocalDate firstDayOfMonth = chronology.dateEpochDay(firstEpochDay);
+
+        // if weeks start on Monday, but the 1st is a Wednesday, pad in 2 days; 1970-01-01 was a Thursday
+        int dayOfWeek = (int) Math.floorMod(firstEpochDay + 3, (long) MonthLayout.DAYS_IN_WEEK) + 1;
+        int paddingDays = Math.floorMod(dayOfWeek - weekStart, MonthLayout.DAYS_IN_WEEK);
+
+        // show month name and year; e.g. "January 2018"
+        return new MonthLayout(
+                locale,
+                chronology,
+                LocalDate.ofEpochDay(firstEpochDay),
+                createNavigationRow(firstDayOfMonth),
+                monthAndYearFormat.format(firstDayOfMonth),
+                weekdayLabels,
+                Arrays.copyOf(dayLabels, firstDayOfMonth.lengthOfMonth()),
+                paddingDays
+        );
+    }
+
+    @Nonnull
+    private DatePickerKeyboard createMonthGrid(int year, @Nonnull DatePickerOptions options) {
+        DatePickerKeyboard.DatePickerKeyboardBuilder keyboardBuilder = DatePickerKeyboard.builder().locale(locale);
+
+        // show << (previous year) and >> (next year), staying on the month grid
+        DatePickerButtonRow.DatePickerButtonRowBuilder navigationBuilder = DatePickerButtonRow.builder();
+        ChronoLocalDate previousYear = firstDayOfYear(year - 1);
+        if (previousYear != null) {
+            navigationBuilder.button(gridButton(DatePickerButtonType.OPEN_MONTH_GRID, previousYear, "\u00ab"));
+        }
+        ChronoLocalDate nextYear = firstDayOfYear(year + 1);
+        if (nextYear != null) {
+            navigationBuilder.button(gridButton(DatePickerButtonType.OPEN_MONTH_GRID, nextYear, "\u00bb"));
+        }
+        keyboardBuilder.row(navigationBuilder.build());
+
+        // show the year, which goes up to the year grid; e.g. "2018"
+        ChronoLocalDate firstDayOfYear = chronology.dateYearDay(year, 1);
+        keyboardBuilder.row(DatePickerButtonRow.builder()
+                .button(gridButton(DatePickerButtonType.OPEN_YEAR_GRID, firstDayOfYear, yearFormat.format(firstDayOfYear)))
+                .build());
+
+        int months = (int) firstDayOfYear.range(ChronoField.MONTH_OF_YEAR).getMaximum();
+        DatePickerButtonRow.DatePickerButtonRowBuilder rowBuilder = DatePickerButtonRow.builder();
+        for (int month = 1; month <= months; month++) {
+            ChronoLocalDate firstDayOfMonth = chronology.date(year, month, 1);
+            long firstEpochDay = firstDayOfMonth.toEpochDay();
+            int length = firstDayOfMonth.lengthOfMonth();
+            String label = shortMonthFormat.format(firstDayOfMonth);
+            if (isAnyDayHighlighted(firstEpochDay, length, options)) {
+                label += MonthLayout.HIGHLIGHT_SUFFIX;
+            }
+            rowBuilder.button(
+                    DatePickerButton.builder()
+                            .type(isEveryDayDisabled(firstEpochDay, length, options) ? DatePickerButtonType.LABEL : DatePickerButtonType.GOTO_MONTH)
+                            .date(LocalDate.ofEpochDay(firstEpochDay))
+                            .label(label)
+                            .build()
+            );
+            if (month % GRID_COLUMNS == 0 || month == months) {
+                keyboardBuilder.row(rowBuilder.build());
+                rowBuilder = DatePickerButtonRow.builder();
+            }
+        }
+        return keyboardBuilder.build();
+    }
+
+    @Nonnull
+    private DatePickerKeyboard createYearGrid(int year) {
+        final int decadeStart = Math.floorDiv(year, YEARS_PER_DECADE) * YEARS_PER_DECADE;
+        final int decadeEnd = decadeStart + YEARS_PER_DECADE - 1;
+
+        DatePickerKeyboard.DatePickerKeyboardBuilder keyboardBuilder = DatePickerKeyboard.builder().locale(locale);
+
+        // show << (previous decade) and >> (next decade), staying on the year grid
+        DatePickerButtonRow.DatePickerButtonRowBuilder navigationBuilder = DatePickerButtonRow.builder();
+        ChronoLocalDate previousDecade = firstDayOfYear(decadeStart - YEARS_PER_DECADE, decadeStart - 1, 1);
+        if (previousDecade != null) {
+            navigationBuilder.button(gridButton(DatePickerButtonType.OPEN_YEAR_GRID, previousDecade, "\u00ab"));
+        }
+        ChronoLocalDate nextDecade = firstDayOfYear(decadeEnd + 1);
+        if (nextDecade != null) {
+            navigationBuilder.button(gridButton(DatePickerButtonType.OPEN_YEAR_GRID, nextDecade, "\u00bb"));
+        }
+        keyboardBuilder.row(navigationBuilder.build());
+
+        // show the decade, as far as the calendar goes; e.g. "2010 – 2019"
+        String title = yearFormat.format(firstDayOfYear(decadeStart, decadeEnd, 1))
+                + " \u2013 "
+                + yearFormat.format(firstDayOfYear(decadeEnd, decadeStart, -1));
+        keyboardBuilder.row(DatePickerButtonRow.builder()
+                .button(DatePickerButton.builder().type(DatePickerButtonType.LABEL).label(title).build())
+                .build());
+
+        // show the decade, along with the years either side of it, so it fills the grid
+        DatePickerButtonRow.DatePickerButtonRowBuilder rowBuilder = DatePickerButtonRow.builder();
+        for (int i = 0; i < YEARS_PER_DECADE + 2; i++) {
+            ChronoLocalDate cellYear = firstDayOfYear(decadeStart - 1 + i);
+            if (cellYear == null) {
+                rowBuilder.button(padding);
+            } else {
+                rowBuilder.button(gridButton(DatePickerButtonType.OPEN_MONTH_GRID, cellYear, yearFormat.format(cellYear)));
+            }
+            if ((i + 1) % GRID_COLUMNS == 0) {
+                keyboardBuilder.row(rowBuilder.build());
+                rowBuilder = DatePickerButtonRow.builder();
+            }
+        }
+        return keyboardBuilder.build();
+    }
+
+    /**
+     * @return the first day of a year, or null if it's outside the range this calendar supports
+     */
+    @Nullable
+    private ChronoLocalDate firstDayOfYear(int year) {
+        // some calendars only cover a limited range of years, and fail with more than a DateTimeException outside it
+        if (!chronology.range(ChronoField.YEAR).isValidValue(year)) {
+            return null;
+        }
+        try {
+            return chronology.dateYearDay(year, 1);
+        } catch (DateTimeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the first day of the first supported year from {@code from} towards {@code to}, stepping by {@code step}
+     */
+    @Nullable
+    private ChronoLocalDate firstDayOfYear(int from, int to, int step) {
+        for (int year = from; year != to + step; year += step) {
+            ChronoLocalDate date = firstDayOfYear(year);
+            if (date != null) {
+                return date;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isAnyDayHighlighted(long firstEpochDay, int length, @Nonnull DatePickerOptions options) {
+        if (options.getHighlightedDates() != null && options.getHighlightedDates().mask(firstEpochDay, length) != 0) {
+            return true;
+        }
+        Predicate<LocalDate> predicate = options.getDateHighlightedPredicate();
+        if (predicate != null) {
+            for (int day = 0; day < length; day++) {
+                if (predicate.test(LocalDate.ofEpochDay(firstEpochDay + day))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isEveryDayDisabled(long firstEpochDay, int length, @Nonnull DatePickerOptions options) {
+        return options.getDisabledDates() != null
+                && options.getDisabledDates().mask(firstEpochDay, length) == (int) ((1L << length) - 1);
+    }
+
+    @Nonnull
+    private static DatePickerButton gridButton(@Nonnull DatePickerButtonType type, @Nonnull ChronoLocalDate date, @Nonnull String label) {
+        return DatePickerButton.builder()
+                .type(type)
+                .date(LocalDate.from(date))
+                .label(label)
+                .build();
+    }
+
+    // doesn't depend on the locale, so layouts can be restored from a MonthLayoutSnapshot without a picker
+    @Nonnull
+    static DatePickerButtonRow createNavigationRow(@Nonnull ChronoLocalDate firstDayOfMonth) {
+        final ChronoLocalDate lastDayOfMonth = firstDayOfMonth.plus(firstDayOfMonth.lengthOfMonth() - 1, ChronoUnit.DAYS);
+
+        DatePickerButtonRow.DatePickerButtonRowBuilder rowBuilder = DatePickerButtonRow.builder();
+        // each button is left out when it would go past the range of the calendar
+        navigationButton(rowBuilder, firstDayOfMonth, -1, ChronoUnit.YEARS, "\u00ab");
+        navigationButton(rowBuilder, firstDayOfMonth, -1, ChronoUnit.MONTHS, "\u2039");
+        navigationButton(rowBuilder, lastDayOfMonth, 1, ChronoUnit.MONTHS, "\u203A");
+        navigationButton(rowBuilder, lastDayOfMonth, 1, ChronoUnit.YEARS, "\u00bb");
+        return rowBuilder.build();
+    }
+
+    private static void navigationButton(@Nonnull DatePickerButtonRow.DatePickerButtonRowBuilder rowBuilder,
+                                         @Nonnull ChronoLocalDate from,
+                                         long amount,
+                                         @Nonnull ChronoUnit unit,
+                                         @Nonnull String label) {
+        LocalDate target;
+        try {
+            target = LocalDate.from(from.plus(amount, unit));
+        } catch (DateTimeException ex) {
+            return;
+        }
+        rowBuilder.button(
+                DatePickerButton.builder()
+                        .type(DatePickerButtonType.GOTO_MONTH)
+                        .date(target)
+                        .label(label)
+                        .build()
+        );
+    }
+
+    /**
+     * Removes fields from a date pattern, along with the literals following them,
+     * e.g. the day from {@code "MMMM d, y G"} to get {@code "MMMM y G"}, or from {@code "Gy年M月d日"} to get {@code "Gy年M月"}.
+     *
+     * @param pattern the pattern
+     * @param letters the pattern letters of the fields to remove
+     * @return the pattern without those fields
+     */
+    @Nonnull
+    static String withoutFields(@Nonnull String pattern, @Nonnull String letters) {
+        StringBuilder result = new StringBuilder(pattern.length());
+        boolean dropping = false;
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            boolean field = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+            int end = i + 1;
+            if (c == '\'') {
+                end = pattern.indexOf('\'', end) + 1;
+                if (end == 0) {
+                    end = pattern.length();
+                }
+            } else if (field) {
+                while (end < pattern.length() && pattern.charAt(end) == c) {
+                    end++;
+                }
+            }
+
+            if (field) {
+                dropping = letters.indexOf(c) >= 0;
+            }
+            if (!dropping) {
+                result.append(pattern, i, end);
+            }
+            i = end;
+        }
+
+        // a separator that was before a removed field is left dangling at the end, e.g. the ", " in "MMMM d, y"
+        int length = result.length();
+        while (length > 0 && result.charAt(length - 1) != '\'' && !Character.isLetterOrDigit(result.charAt(length - 1))) {
+            length--;
+        }
+        result.setLength(length);
+        return result.toString();
+    }
+
+}
@@ -1,7 +1,9 @@
 package com.jtelegram.ext.datepicker.picker;
 
 import com.jtelegram.ext.datepicker.keyboard.DatePickerKeyboard;
+import com.jtelegram.ext.datepicker.keyboard.PackedDatePickerKeyboard;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.Locale;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -9,7 +11,8 @@ import javax.annotation.Nullable;
 /**
  * A component interface for specifying a format for how the date picker will be displayed.
  *
- * The only implementation currently is {@link GregorianDatePicker}.
+ * The only implementation currently is {@link ChronologyDatePicker}, which supports any calendar system
+ * in java.time, with {@link GregorianDatePicker} for the ISO calendar.
  *
  * @author Nick Robson
  */
@@ -18,6 +21,8 @@ public interface DatePicker {
     String CB_PREFIX = "ext:datepicker:";
     String CB_GOTO_MONTH_FORMAT = CB_PREFIX + "%d:%d|%s";    // year:month    |locale
     String CB_SELECT_DAY_FORMAT = CB_PREFIX + "%d:%d:%d|%s"; // year:month:day|locale
+    String CB_OPEN_MONTH_GRID_FORMAT = CB_PREFIX + "months:%d|%s"; // year|locale
+    String CB_OPEN_YEAR_GRID_FORMAT = CB_PREFIX + "years:%d|%s";   // year|locale
 
     @Nonnull
     Locale getLocale();
@@ -30,4 +35,80 @@ public interface DatePicker {
     @Nonnull
     DatePickerKeyboard toKeyboard(@Nonnull LocalDate date, @Nullable DatePickerOptions options);
 
+    /**
+     * Renders a range of months ahead of time, e.g. at startup, so the first users to see them don't pay for it.
+     *
+     * @param from the first month, inclusive
+     * @param to the last month, inclusive
+     */
+    default void prewarm(@Nonnull YearMonth from, @Nonnull YearMonth to) {
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            toKeyboard(month.atDay(1));
+        }
+    }
+
+    /**
+     * Gets the first day of the month containing a date, in this picker's calendar.
+     *
+     * @param date the date
+     * @return the first day of its month
+     */
+    @Nonnull
+    default LocalDate getFirstDayOfMonth(@Nonnull LocalDate date) {
+        return date.withDayOfMonth(1);
+    }
+
+    /**
+     * Gets the last day of the month containing a date, in this picker's calendar.
+     *
+     * @param date the date
+     * @return the last day of its month
+     */
+    @Nonnull
+    default LocalDate getLastDayOfMonth(@Nonnull LocalDate date) {
+        return date.withDayOfMonth(date.lengthOfMonth());
+    }
+
+    /**
+     * Creates a calendar for a month as a {@link PackedDatePickerKeyboard}, which is cheaper to render repeatedly.
+     *
+     * @param date any date in the month to show
+     * @param options the options to render with
+     * @return the keyboard
+     */
+    @Nonnull
+    default PackedDatePickerKeyboard toPackedKeyboard(@Nonnull LocalDate date, @Nullable DatePickerOptions options) {
+        return PackedDatePickerKeyboard.of(toKeyboard(date, options));
+    }
+
+    /**
+     * Creates a grid of the twelve months of a year, each of which goes to that month.
+     * The title goes to {@link #toYearGrid(LocalDate, DatePickerOptions)}.
+     *
+     * Pickers without grids show the month containing the date instead.
+     *
+     * @param date any date in the year to show
+     * @param options the options to render with
+     * @return the keyboard
+     */
+    @Nonnull
+    default DatePickerKeyboard toMonthGrid(@Nonnull LocalDate date, @Nullable DatePickerOptions options) {
+        return toKeyboard(date, options);
+    }
+
+    /**
+     * Creates a grid of the years of a decade, along with the years either side of it,
+     * each of which goes to {@link #toMonthGrid(LocalDate, DatePickerOptions)} for that year.
+     *
+     * Pickers without grids show the month containing the date instead.
+     *
+     * @param date any date in the decade to show
+     * @param options the options to render with
+     * @return the keyboard
+     */
+    @Nonnull
+    default DatePickerKeyboard toYearGrid(@Nonnull LocalDate date, @Nullable DatePickerOptions options) {
+        return toKeyboard(date, options);
+    }
+
 }
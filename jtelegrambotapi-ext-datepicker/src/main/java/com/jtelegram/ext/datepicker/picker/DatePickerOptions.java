@@ -1,7 +1,9 @@
 package com.jtelegram.ext.datepicker.picker;
 
+import com.jtelegram.ext.datepicker.metrics.DatePickerMetrics;
 import java.time.LocalDate;
 import java.util.function.Predicate;
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import lombok.Builder;
 import lombok.Getter;
@@ -16,4 +18,46 @@ public class DatePickerOptions {
     @Nullable
     private final Predicate<LocalDate> dateHighlightedPredicate;
 
+    /**
+     * Dates to highlight, in addition to those matched by {@link #getDateHighlightedPredicate()}.
+     * Prefer this to a predicate for large sets of dates, as it's applied a month at a time.
+     */
+    @Nullable
+    private final EpochDaySet highlightedDates;
+
+    /**
+     * Dates which are shown, but can't be selected.
+     */
+    @Nullable
+    private final EpochDaySet disabledDates;
+
+    /**
+     * Whether the month title opens a grid of the year's months, and from there a grid of years,
+     * letting users jump to a distant month in a few clicks. Off by default, where the title is a plain label.
+     */
+    private final boolean gridNavigation;
+
+    /**
+     * Where rendering with these options, including the layout cache lookups it makes, is reported.
+     * If unset, {@link DatePickerMetrics#getDefault()} is looked up when rendering.
+     */
+    @Nullable
+    private final DatePickerMetrics metrics;
+
+    /**
+     * @return the metrics to report to, falling back to {@link DatePickerMetrics#getDefault()}
+     */
+    @Nonnull
+    public DatePickerMetrics getMetricsOrDefault() {
+        return metrics != null ? metrics : DatePickerMetrics.getDefault();
+    }
+
+    /**
+     * @param date a date
+     * @return true if the date can't be selected
+     */
+    public boolean isDateDisabled(LocalDate date) {
+        return disabledDates != null && disabledDates.contains(date);
+    }
+
 }
@@ -0,0 +1,94 @@
+package com.jtelegram.ext.datepicker.picker;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import javax.annotation.Nonnull;
+
+/**
+ * A dense bitmap of epoch days, one bit per day between the earliest and latest day in the set.
+ *
+ * Best suited to sets covering a limited span of time, e.g. the booked days of the next couple of years,
+ * which take 46 bytes per year. Use {@link EpochDayRanges} for long runs of consecutive days.
+ *
+ * @author Nick Robson
+ */
+public final class EpochDayBitmap implements EpochDaySet {
+
+    private static final EpochDayBitmap EMPTY = new EpochDayBitmap(0, new long[0]);
+
+    // the epoch day of bit 0 of words[0]; always a multiple of 64
+    private final long base;
+    private final long[] words;
+
+    private EpochDayBitmap(long base, @Nonnull long[] words) {
+        this.base = base;
+        this.words = words;
+    }
+
+    @Nonnull
+    public static EpochDayBitmap of(@Nonnull long... epochDays) {
+        if (epochDays.length == 0) {
+            return EMPTY;
+        }
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (long epochDay : epochDays) {
+            min = Math.min(min, epochDay);
+            max = Math.max(max, epochDay);
+        }
+
+        long base = Math.floorDiv(min, Long.SIZE) * Long.SIZE;
+        long wordCount = Math.floorDiv(max - base, Long.SIZE) + 1;
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("epoch days span too many years for a bitmap");
+        }
+        long[] words = new long[(int) wordCount];
+        for (long epochDay : epochDays) {
+            long bit = epochDay - base;
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        return new EpochDayBitmap(base, words);
+    }
+
+    @Nonnull
+    public static EpochDayBitmap of(@Nonnull Collection<LocalDate> dates) {
+        long[] epochDays = new long[dates.size()];
+        int i = 0;
+        for (LocalDate date : dates) {
+            epochDays[i++] = date.toEpochDay();
+        }
+        return of(epochDays);
+    }
+
+    @Override
+    public boolean contains(long epochDay) {
+        long bit = epochDay - base;
+        if (bit < 0 || bit >= (long) words.length * Long.SIZE) {
+            return false;
+        }
+        return (words[(int) (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    @Override
+    public int mask(long firstEpochDay, int length) {
+        if (length < 0 || length > MAX_MASK_LENGTH) {
+            throw new IllegalArgumentException("length must be between 0 and " + MAX_MASK_LENGTH);
+        }
+        long bit = firstEpochDay - base;
+        long word = Math.floorDiv(bit, Long.SIZE);
+        // the low bits of a two's complement number are its floor modulo a power of two, even when it's negative
+        int shift = (int) bit & (Long.SIZE - 1);
+
+        // the 64 days from firstEpochDay, stitched together from at most two words
+        long bits = word(word) >>> shift;
+        if (shift != 0) {
+            bits |= word(word + 1) << (Long.SIZE - shift);
+        }
+        return (int) (bits & ((1L << length) - 1));
+    }
+
+    private long word(long index) {
+        return index >= 0 && index < words.length ? words[(int) index] : 0;
+    }
+
+}
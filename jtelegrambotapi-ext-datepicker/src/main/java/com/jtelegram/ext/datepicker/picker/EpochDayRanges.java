@@ -0,0 +1,106 @@
+package com.jtelegram.ext.datepicker.picker;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import javax.annotation.Nonnull;
+
+/**
+ * A sorted set of inclusive epoch day ranges, stored in primitive arrays.
+ *
+ * Best suited to long runs of consecutive days, e.g. blocked-out holidays, or everything before today.
+ *
+ * @author Nick Robson
+ */
+public final class EpochDayRanges implements EpochDaySet {
+
+    // disjoint, non-adjacent and sorted; starts[i] <= ends[i] < starts[i + 1] - 1
+    private final long[] starts;
+    private final long[] ends;
+
+    private EpochDayRanges(@Nonnull long[] starts, @Nonnull long[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * @param bounds pairs of inclusive {@code start, end} epoch days, in any order, which may overlap
+     * @return the ranges
+     */
+    @Nonnull
+    public static EpochDayRanges of(@Nonnull long... bounds) {
+        if (bounds.length % 2 != 0) {
+            throw new IllegalArgumentException("bounds must be pairs of start and end epoch days");
+        }
+        int count = bounds.length / 2;
+        long[][] ranges = new long[count][];
+        for (int i = 0; i < count; i++) {
+            long start = bounds[2 * i];
+            long end = bounds[2 * i + 1];
+            if (end < start) {
+                throw new IllegalArgumentException("range " + i + " ends before it starts");
+            }
+            ranges[i] = new long[] { start, end };
+        }
+        Arrays.sort(ranges, (a, b) -> Long.compare(a[0], b[0]));
+
+        long[] starts = new long[count];
+        long[] ends = new long[count];
+        int merged = 0;
+        for (long[] range : ranges) {
+            if (merged > 0 && range[0] <= ends[merged - 1] + 1) {
+                ends[merged - 1] = Math.max(ends[merged - 1], range[1]);
+            } else {
+                starts[merged] = range[0];
+                ends[merged] = range[1];
+                merged++;
+            }
+        }
+        return new EpochDayRanges(Arrays.copyOf(starts, merged), Arrays.copyOf(ends, merged));
+    }
+
+    /**
+     * @param start the first date, inclusive
+     * @param end the last date, inclusive
+     * @return a set of a single range
+     */
+    @Nonnull
+    public static EpochDayRanges between(@Nonnull LocalDate start, @Nonnull LocalDate end) {
+        return of(start.toEpochDay(), end.toEpochDay());
+    }
+
+    @Override
+    public boolean contains(long epochDay) {
+        int index = indexOfFirstEndingOnOrAfter(epochDay);
+        return index < starts.length && starts[index] <= epochDay;
+    }
+
+    @Override
+    public int mask(long firstEpochDay, int length) {
+        if (length < 0 || length > MAX_MASK_LENGTH) {
+            throw new IllegalArgumentException("length must be between 0 and " + MAX_MASK_LENGTH);
+        }
+        long lastEpochDay = firstEpochDay + length - 1;
+        long mask = 0;
+        for (int i = indexOfFirstEndingOnOrAfter(firstEpochDay); i < starts.length && starts[i] <= lastEpochDay; i++) {
+            int from = (int) (Math.max(starts[i], firstEpochDay) - firstEpochDay);
+            int to = (int) (Math.min(ends[i], lastEpochDay) - firstEpochDay);
+            mask |= ((1L << (to - from + 1)) - 1) << from;
+        }
+        return (int) mask;
+    }
+
+    private int indexOfFirstEndingOnOrAfter(long epochDay) {
+        int low = 0;
+        int high = ends.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.jtelegram.ext.datepicker.picker;
+
+import java.time.LocalDate;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable set of dates, stored as epoch days, which can be queried a month at a time.
+ *
+ * @author Nick Robson
+ * @see EpochDayBitmap
+ * @see EpochDayRanges
+ */
+public interface EpochDaySet {
+
+    /**
+     * The most days a single {@link #mask(long, int)} call can cover.
+     */
+    int MAX_MASK_LENGTH = Integer.SIZE;
+
+    /**
+     * @param epochDay an epoch day
+     * @return true if the day is in this set
+     */
+    boolean contains(long epochDay);
+
+    /**
+     * @param date a date
+     * @return true if the date is in this set
+     */
+    default boolean contains(@Nonnull LocalDate date) {
+        return contains(date.toEpochDay());
+    }
+
+    /**
+     * Gets a run of days as a bit mask, where bit {@code i} is set if {@code firstEpochDay + i} is in this set.
+     *
+     * @param firstEpochDay the first epoch day to include
+     * @param length the number of days to include, at most {@link #MAX_MASK_LENGTH}
+     * @return the mask
+     */
+    int mask(long firstEpochDay, int length);
+
+    /**
+     * @param set a set, or null for none
+     * @param firstEpochDay the first epoch day to keep, inclusive
+     * @param lastEpochDay the last epoch day to keep, inclusive
+     * @return the days of the set within the range, or null if the set is null
+     */
+    @Nullable
+    static EpochDaySet within(@Nullable EpochDaySet set, long firstEpochDay, long lastEpochDay) {
+        if (set == null) {
+            return null;
+        }
+        return new EpochDaySet() {
+            @Override
+            public boolean contains(long epochDay) {
+                return epochDay >= firstEpochDay && epochDay <= lastEpochDay && set.contains(epochDay);
+            }
+
+            @Override
+            public int mask(long maskFirstEpochDay, int length) {
+                long start = Math.max(maskFirstEpochDay, firstEpochDay);
+                long end = Math.min(maskFirstEpochDay + length - 1, lastEpochDay);
+                if (start > end) {
+                    return 0;
+                }
+                return set.mask(start, (int) (end - start + 1)) << (start - maskFirstEpochDay);
+            }
+        };
+    }
+
+    /**
+     * @param first a set, or null for none
+     * @param second another set, or null for none
+     * @return the days in either set, or null if both are null
+     */
+    @Nullable
+    static EpochDaySet union(@Nullable EpochDaySet first, @Nullable EpochDaySet second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return new EpochDaySet() {
+            @Override
+            public boolean contains(long epochDay) {
+                return first.contains(epochDay) || second.contains(epochDay);
+            }
+
+            @Override
+            public int mask(long firstEpochDay, int length) {
+                return first.mask(firstEpochDay, length) | second.mask(firstEpochDay, length);
+            }
+        };
+    }
+
+}
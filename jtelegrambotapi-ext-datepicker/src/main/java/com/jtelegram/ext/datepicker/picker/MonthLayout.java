@@ -0,0 +1,413 @@
+package com.jtelegram.ext.datepicker.picker;
+
+import com.jtelegram.ext.datepicker.callback.DatePickerCallbackCodec;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButton;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonRow;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonType;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerKeyboard;
+import com.jtelegram.ext.datepicker.keyboard.PackedDatePickerKeyboard;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.chrono.ChronoLocalDate;
+import java.time.chrono.Chronology;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import lombok.Getter;
+
+/**
+ * An immutable skeleton of a single month's keyboard for a single locale and calendar.
+ *
+ * Months are those of the layout's {@link Chronology}, so they needn't line up with ISO months,
+ * but days are still identified by their ISO date (and epoch day), as everywhere else.
+ *
+ * Everything that doesn't depend on {@link DatePickerOptions} is computed once: the navigation row,
+ * the month title, the weekday headers, the padding cells and the day buttons themselves.
+ * Highlighted and disabled days are applied on top of the skeleton as bit masks when rendering,
+ * and any row without a highlighted or disabled day is shared as-is between renders.
+ * The headers come in two variants, with the title as a label or as a button opening the month grid,
+ * see {@link DatePickerOptions#isGridNavigation()}.
+ *
+ * Layouts can also render {@link PackedDatePickerKeyboard}s, which share one table of buttons and row offsets
+ * between every render of the month, so a render only allocates its array of cells.
+ *
+ * @author Nick Robson
+ */
+public final class MonthLayout {
+
+    static final int DAYS_IN_WEEK = 7;
+    static final String HIGHLIGHT_SUFFIX = "•";
+
+    @Getter @Nonnull private final Locale locale;
+    @Getter @Nonnull private final Chronology chronology;
+    @Getter @Nonnull private final LocalDate firstDay;
+    @Nonnull private final List<DatePickerButtonRow> headerRows;
+    @Nonnull private final List<DatePickerButtonRow> gridHeaderRows;
+    @Nonnull private final List<DatePickerButtonRow> weekRows;
+    @Nonnull private final String title;
+    @Nonnull private final String[] weekdayLabels;
+    @Nonnull private final DatePickerButton[] days;
+    // one per layout, as buttons only cache their encoding for one locale and codec at a time
+    @Nonnull private final DatePickerButton padding = DatePickerButton.builder().type(DatePickerButtonType.LABEL).build();
+    @Nonnull private final DatePickerButton[][] dayVariants;
+    @Nonnull private final DatePickerKeyboard plainKeyboard;
+    @Nonnull private final DatePickerKeyboard plainGridKeyboard;
+    @Nonnull private final DatePickerButton[] packedButtons;
+    @Nonnull private final int[] packedRowOffsets;
+    @Nonnull private final int[] packedCells;
+    @Nonnull private final int[] packedGridCells;
+    @Nonnull private final PackedDatePickerKeyboard plainPackedKeyboard;
+    @Nonnull private final PackedDatePickerKeyboard plainPackedGridKeyboard;
+    private final int packedFirstDayCell;
+    private final long firstEpochDay;
+    private final int offset;
+
+    // indices into dayVariants; plain days are the ones in days
+    private static final int HIGHLIGHTED = 1;
+    private static final int DISABLED = 2;
+    private static final int VARIANTS = 4;
+
+    /**
+     * @param locale the locale the labels were formatted in
+     * @param chronology the calendar system of the month
+     * @param firstDay the first day of the month this layout represents
+     * @param navigationRow the row of buttons used to move between months
+     * @param title the label shown above the weekday headers, e.g. "January 2018"
+     * @param weekdayLabels the weekday headers, starting from the first day of the week
+     * @param dayLabels the label for each day of the month, starting from the 1st, so also giving its length
+     * @param offset the number of padding cells before the 1st of the month
+     */
+    MonthLayout(@Nonnull Locale locale,
+                @Nonnull Chronology chronology,
+                @Nonnull LocalDate firstDay,
+                @Nonnull DatePickerButtonRow navigationRow,
+                @Nonnull String title,
+                @Nonnull String[] weekdayLabels,
+                @Nonnull String[] dayLabels,
+                int offset) {
+        if (weekdayLabels.length != DAYS_IN_WEEK) {
+            throw new IllegalArgumentException("there must be exactly " + DAYS_IN_WEEK + " weekday labels");
+        }
+        ChronoLocalDate first = chronology.date(firstDay);
+        if (first.get(ChronoField.DAY_OF_MONTH) != 1) {
+            throw new IllegalArgumentException(firstDay + " isn't the first day of a month in " + chronology);
+        }
+        if (dayLabels.length != first.lengthOfMonth()) {
+            throw new IllegalArgumentException("there must be exactly one label per day of the month starting " + firstDay);
+        }
+        if (offset < 0 || offset >= DAYS_IN_WEEK) {
+            throw new IllegalArgumentException("offset must be between 0 and " + (DAYS_IN_WEEK - 1));
+        }
+
+        this.locale = locale;
+        this.chronology = chronology;
+        this.firstDay = firstDay;
+        this.title = title;
+        this.weekdayLabels = weekdayLabels.clone();
+        this.firstEpochDay = firstDay.toEpochDay();
+        this.offset = offset;
+
+        DatePickerButton[] weekdays = new DatePickerButton[DAYS_IN_WEEK];
+        for (int i = 0; i < DAYS_IN_WEEK; i++) {
+            weekdays[i] = label(weekdayLabels[i]);
+        }
+        DatePickerButtonRow weekdayRow = row(weekdays);
+        this.headerRows = Collections.unmodifiableList(Arrays.asList(
+                navigationRow,
+                row(new DatePickerButton[] { label(title) }),
+                weekdayRow
+        ));
+        this.gridHeaderRows = Collections.unmodifiableList(Arrays.asList(
+                navigationRow,
+                row(new DatePickerButton[] { new DatePickerButton(title, DatePickerButtonType.OPEN_MONTH_GRID, firstDay) }),
+                weekdayRow
+        ));
+
+        this.days = new DatePickerButton[dayLabels.length];
+        this.dayVariants = new DatePickerButton[VARIANTS][dayLabels.length];
+        for (int i = 0; i < dayLabels.length; i++) {
+            LocalDate date = firstDay.plusDays(i);
+            String highlightedLabel = dayLabels[i] + HIGHLIGHT_SUFFIX;
+            days[i] = new DatePickerButton(dayLabels[i], DatePickerButtonType.SELECT_DATE, date);
+            dayVariants[0][i] = days[i];
+            dayVariants[HIGHLIGHTED][i] = new DatePickerButton(highlightedLabel, DatePickerButtonType.SELECT_DATE, date);
+            // disabled days keep their date but can't be clicked
+            dayVariants[DISABLED][i] = new DatePickerButton(dayLabels[i], DatePickerButtonType.LABEL, date);
+            dayVariants[HIGHLIGHTED | DISABLED][i] = new DatePickerButton(highlightedLabel, DatePickerButtonType.LABEL, date);
+        }
+
+        int weeks = (offset + days.length + DAYS_IN_WEEK - 1) / DAYS_IN_WEEK;
+        List<DatePickerButtonRow> weekRows = new ArrayList<>(weeks);
+        for (int week = 0; week < weeks; week++) {
+            DatePickerButton[] cells = new DatePickerButton[DAYS_IN_WEEK];
+            for (int col = 0; col < DAYS_IN_WEEK; col++) {
+                int day = week * DAYS_IN_WEEK + col - offset;
+                cells[col] = day >= 0 && day < days.length ? days[day] : padding;
+            }
+            weekRows.add(row(cells));
+        }
+        this.weekRows = Collections.unmodifiableList(weekRows);
+
+        this.plainKeyboard = keyboard(headerRows, this.weekRows);
+        this.plainGridKeyboard = keyboard(gridHeaderRows, this.weekRows);
+
+        // packed buttons: each variant of each day at variant * length + day, then the padding, the grid title,
+        // and the header buttons in the order they appear
+        int length = days.length;
+        List<DatePickerButton> packedButtons = new ArrayList<>(VARIANTS * length + 16);
+        for (DatePickerButton[] variant : dayVariants) {
+            packedButtons.addAll(Arrays.asList(variant));
+        }
+        packedButtons.add(padding);
+        packedButtons.add(gridHeaderRows.get(1).getButtons().get(0));
+        int gridTitleIndex = packedButtons.size() - 1;
+
+        List<DatePickerButtonRow> rows = plainKeyboard.getRows();
+        this.packedRowOffsets = new int[rows.size() + 1];
+        this.packedCells = new int[plainKeyboard.getButtonCount()];
+        int cell = 0;
+        for (int row = 0; row < rows.size(); row++) {
+            packedRowOffsets[row] = cell;
+            for (DatePickerButton button : rows.get(row).getButtons()) {
+                if (row < headerRows.size()) {
+                    packedCells[cell++] = packedButtons.size();
+                    packedButtons.add(button);
+                } else if (button == padding) {
+                    packedCells[cell++] = VARIANTS * length;
+                } else {
+                    packedCells[cell++] = (int) (button.getDate().toEpochDay() - firstEpochDay);
+                }
+            }
+        }
+        packedRowOffsets[rows.size()] = cell;
+        this.packedButtons = packedButtons.toArray(new DatePickerButton[0]);
+        this.packedFirstDayCell = packedRowOffsets[headerRows.size()] + offset;
+
+        this.packedGridCells = packedCells.clone();
+        packedGridCells[packedRowOffsets[1]] = gridTitleIndex;
+        this.plainPackedKeyboard = new PackedDatePickerKeyboard(locale, this.packedButtons, packedRowOffsets, packedCells);
+        this.plainPackedGridKeyboard = new PackedDatePickerKeyboard(locale, this.packedButtons, packedRowOffsets, packedGridCells);
+    }
+
+    /**
+     * Renders this month, highlighting and disabling any days matched by the options.
+     *
+     * @param options the options to render with
+     * @return the keyboard, sharing every row that has no highlighted or disabled days
+     */
+    @Nonnull
+    public DatePickerKeyboard render(@Nonnull DatePickerOptions options) {
+        return render(highlightedMask(options), mask(options.getDisabledDates()), options.isGridNavigation());
+    }
+
+    /**
+     * Renders this month as a packed keyboard, highlighting and disabling any days matched by the options.
+     *
+     * @param options the options to render with
+     * @return the keyboard, sharing its buttons and rows with every other render of this month
+     */
+    @Nonnull
+    public PackedDatePickerKeyboard renderPacked(@Nonnull DatePickerOptions options) {
+        return renderPacked(highlightedMask(options), mask(options.getDisabledDates()), options.isGridNavigation());
+    }
+
+    /**
+     * Renders this month as a packed keyboard from bit masks of days,
+     * where bit {@code i} represents day {@code i + 1} of the month.
+     *
+     * @param highlighted the days to highlight
+     * @param disabled the days which can't be selected
+     * @param gridNavigation whether the title opens the month grid
+     * @return the keyboard, sharing its buttons and rows with every other render of this month
+     */
+    @Nonnull
+    public PackedDatePickerKeyboard renderPacked(int highlighted, int disabled, boolean gridNavigation) {
+        if (highlighted == 0 && disabled == 0) {
+            return gridNavigation ? plainPackedGridKeyboard : plainPackedKeyboard;
+        }
+
+        int[] cells = (gridNavigation ? packedGridCells : packedCells).clone();
+        int flagged = (highlighted | disabled) & (int) ((1L << days.length) - 1);
+        while (flagged != 0) {
+            int day = Integer.numberOfTrailingZeros(flagged);
+            flagged &= flagged - 1;
+            int variant = ((highlighted >>> day) & 1) * HIGHLIGHTED | ((disabled >>> day) & 1) * DISABLED;
+            cells[packedFirstDayCell + day] = variant * days.length + day;
+        }
+        return new PackedDatePickerKeyboard(locale, packedButtons, packedRowOffsets, cells);
+    }
+
+    /**
+     * Renders this month from bit masks of days, where bit {@code i} represents day {@code i + 1} of the month.
+     *
+     * @param highlighted the days to highlight
+     * @param disabled the days which can't be selected
+     * @return the keyboard, sharing every row that has no highlighted or disabled days
+     */
+    @Nonnull
+    public DatePickerKeyboard render(int highlighted, int disabled) {
+        return render(highlighted, disabled, false);
+    }
+
+    /**
+     * Renders this month from bit masks of days, where bit {@code i} represents day {@code i + 1} of the month.
+     *
+     * @param highlighted the days to highlight
+     * @param disabled the days which can't be selected
+     * @param gridNavigation whether the title opens the month grid
+     * @return the keyboard, sharing every row that has no highlighted or disabled days
+     */
+    @Nonnull
+    public DatePickerKeyboard render(int highlighted, int disabled, boolean gridNavigation) {
+        if (highlighted == 0 && disabled == 0) {
+            return gridNavigation ? plainGridKeyboard : plainKeyboard;
+        }
+
+        List<DatePickerButtonRow> weeks = new ArrayList<>(weekRows.size());
+        for (int week = 0; week < weekRows.size(); week++) {
+            weeks.add(renderWeek(week, highlighted, disabled));
+        }
+        return keyboard(gridNavigation ? gridHeaderRows : headerRows, weeks);
+    }
+
+    /**
+     * @return the ISO month containing the first day, which for ISO layouts is the month itself
+     */
+    @Nonnull
+    public YearMonth getMonth() {
+        return YearMonth.from(firstDay);
+    }
+
+    /**
+     * @return the epoch day of the 1st of the month
+     */
+    public long getFirstEpochDay() {
+        return firstEpochDay;
+    }
+
+    /**
+     * @return the number of days in the month
+     */
+    public int getLength() {
+        return days.length;
+    }
+
+    @Nonnull
+    String getTitle() {
+        return title;
+    }
+
+    @Nonnull
+    String[] getWeekdayLabels() {
+        return weekdayLabels.clone();
+    }
+
+    @Nonnull
+    String[] getDayLabels() {
+        String[] labels = new String[days.length];
+        for (int i = 0; i < days.length; i++) {
+            labels[i] = days[i].getLabel();
+        }
+        return labels;
+    }
+
+    int getOffset() {
+        return offset;
+    }
+
+    private int highlightedMask(@Nonnull DatePickerOptions options) {
+        int highlighted = mask(options.getHighlightedDates());
+        Predicate<LocalDate> predicate = options.getDateHighlightedPredicate();
+        if (predicate != null) {
+            for (int i = 0; i < days.length; i++) {
+                if ((highlighted & (1 << i)) == 0 && predicate.test(days[i].getDate())) {
+                    highlighted |= 1 << i;
+                }
+            }
+        }
+        return highlighted;
+    }
+
+    private int mask(@Nullable EpochDaySet dates) {
+        return dates != null ? dates.mask(firstEpochDay, days.length) : 0;
+    }
+
+    /**
+     * Encodes the callback data of every button in this month ahead of time,
+     * so later calls to {@link DatePickerKeyboard#toInline(DatePickerCallbackCodec)} reuse it.
+     *
+     * @param codec the codec to encode with
+     */
+    public void precompute(@Nonnull DatePickerCallbackCodec codec) {
+        for (DatePickerButtonRow row : headerRows) {
+            row.toInline(locale, codec);
+        }
+        gridHeaderRows.get(1).toInline(locale, codec);
+        for (DatePickerButton[] variant : dayVariants) {
+            for (DatePickerButton day : variant) {
+                day.toInline(locale, codec);
+            }
+        }
+        padding.toInline(locale, codec);
+    }
+
+    /**
+     * Serializes every button in this month ahead of time,
+     * so later calls to {@link PackedDatePickerKeyboard#toJson(DatePickerCallbackCodec)} only copy bytes.
+     *
+     * @param codec the codec to encode with
+     */
+    public void precomputeJson(@Nonnull DatePickerCallbackCodec codec) {
+        // a single row holding each button once
+        int[] cells = new int[packedButtons.length];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = i;
+        }
+        new PackedDatePickerKeyboard(locale, packedButtons, new int[] { 0, cells.length }, cells).toJson(codec);
+    }
+
+    @Nonnull
+    private DatePickerButtonRow renderWeek(int week, int highlighted, int disabled) {
+        int first = week * DAYS_IN_WEEK - offset;
+        // the bits of this week's days, shifted so bit 0 is the first column
+        int columns = (first >= 0 ? (highlighted | disabled) >>> first : (highlighted | disabled) << -first) & ((1 << DAYS_IN_WEEK) - 1);
+        if (columns == 0) {
+            return weekRows.get(week);
+        }
+
+        DatePickerButton[] cells = weekRows.get(week).getButtons().toArray(new DatePickerButton[DAYS_IN_WEEK]);
+        for (int col = 0; col < DAYS_IN_WEEK; col++) {
+            int day = first + col;
+            if ((columns & (1 << col)) != 0 && day >= 0 && day < days.length) {
+                int variant = ((highlighted >>> day) & 1) * HIGHLIGHTED | ((disabled >>> day) & 1) * DISABLED;
+                cells[col] = dayVariants[variant][day];
+            }
+        }
+        return row(cells);
+    }
+
+    @Nonnull
+    private DatePickerKeyboard keyboard(@Nonnull List<DatePickerButtonRow> headers, @Nonnull List<DatePickerButtonRow> weeks) {
+        List<DatePickerButtonRow> rows = new ArrayList<>(headers.size() + weeks.size());
+        rows.addAll(headers);
+        rows.addAll(weeks);
+        return new DatePickerKeyboard(locale, Collections.unmodifiableList(rows));
+    }
+
+    @Nonnull
+    private static DatePickerButton label(@Nonnull String label) {
+        return new DatePickerButton(label, DatePickerButtonType.LABEL, null);
+    }
+
+    @Nonnull
+    private static DatePickerButtonRow row(@Nonnull DatePickerButton[] cells) {
+        return new DatePickerButtonRow(Collections.unmodifiableList(Arrays.asList(cells)));
+    }
+
+}
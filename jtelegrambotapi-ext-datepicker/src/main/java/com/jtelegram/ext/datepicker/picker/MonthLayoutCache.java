@@ -0,0 +1,234 @@
+package com.jtelegram.ext.datepicker.picker;
+
+import com.jtelegram.ext.datepicker.metrics.DatePickerMetrics;
+import java.time.YearMonth;
+import java.time.chrono.Chronology;
+import java.time.chrono.IsoChronology;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+import javax.annotation.Nonnull;
+import lombok.Getter;
+import lombok.Value;
+
+/**
+ * A bounded, approximately least-recently-used cache of {@link MonthLayout}s, keyed by locale, calendar system and month.
+ *
+ * Layouts are immutable, so a single cache can safely be shared by every {@link DatePicker}. Lookups never lock:
+ * each entry remembers the last time it was used on a clock that only ticks when a layout is added, so layouts
+ * used between the same two additions are equally recent, and eviction drops the least recent once the cache is full.
+ * Hits and misses are reported to the metrics each lookup is given, or {@link DatePickerMetrics#getDefault()}.
+ *
+ * @author Nick Robson
+ */
+public final class MonthLayoutCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 512;
+
+    private static final MonthLayoutCache DEFAULT = new MonthLayoutCache(DEFAULT_MAXIMUM_SIZE);
+
+    @Getter
+    private final int maximumSize;
+
+    @Nonnull
+    private final Map<Key, Entry> layouts = new ConcurrentHashMap<>();
+
+    @Nonnull
+    private final AtomicLong clock = new AtomicLong();
+
+    // held while evicting, so only one thread scans the cache at a time
+    @Nonnull
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    public MonthLayoutCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * @return the cache shared by all date pickers that weren't given their own
+     */
+    @Nonnull
+    public static MonthLayoutCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Gets the layout for an ISO month, creating it if it isn't cached.
+     *
+     * @param locale the locale of the layout
+     * @param month the month of the layout
+     * @param loader creates the layout if it isn't cached
+     * @return the cached layout
+     * @see #get(Locale, Chronology, long, LongFunction, DatePickerMetrics)
+     */
+    @Nonnull
+    public MonthLayout get(@Nonnull Locale locale, @Nonnull YearMonth month, @Nonnull Function<YearMonth, MonthLayout> loader) {
+        return get(locale, month, loader, DatePickerMetrics.getDefault());
+    }
+
+    /**
+     * Gets the layout for an ISO month, creating it if it isn't cached.
+     *
+     * @param locale the locale of the layout
+     * @param month the month of the layout
+     * @param loader creates the layout if it isn't cached
+     * @param metrics where to report the hit or miss
+     * @return the cached layout
+     * @see #get(Locale, Chronology, long, LongFunction, DatePickerMetrics)
+     */
+    @Nonnull
+    public MonthLayout get(@Nonnull Locale locale, @Nonnull YearMonth month, @Nonnull Function<YearMonth, MonthLayout> loader, @Nonnull DatePickerMetrics metrics) {
+        return get(locale, IsoChronology.INSTANCE, month.atDay(1).toEpochDay(), firstEpochDay -> loader.apply(month), metrics);
+    }
+
+    /**
+     * Gets the layout for a month, creating it if it isn't cached, and reporting to {@link DatePickerMetrics#getDefault()}.
+     *
+     * @param locale the locale of the layout
+     * @param chronology the calendar system of the layout
+     * @param firstEpochDay the epoch day of the first day of the month
+     * @param loader creates the layout from the first epoch day if it isn't cached
+     * @return the cached layout
+     * @see #get(Locale, Chronology, long, LongFunction, DatePickerMetrics)
+     */
+    @Nonnull
+    public MonthLayout get(@Nonnull Locale locale, @Nonnull Chronology chronology, long firstEpochDay, @Nonnull LongFunction<MonthLayout> loader) {
+        return get(locale, chronology, firstEpochDay, loader, DatePickerMetrics.getDefault());
+    }
+
+    /**
+     * Gets the layout for a month, creating it if it isn't cached.
+     *
+     * The loader runs without holding any lock, so two threads may race to create the same layout;
+     * the first one stored wins and is returned to both.
+     *
+     * @param locale the locale of the layout
+     * @param chronology the calendar system of the layout
+     * @param firstEpochDay the epoch day of the first day of the month
+     * @param loader creates the layout from the first epoch day if it isn't cached
+     * @param metrics where to report the hit or miss
+     * @return the cached layout
+     */
+    @Nonnull
+    public MonthLayout get(@Nonnull Locale locale,
+                           @Nonnull Chronology chronology,
+                           long firstEpochDay,
+                           @Nonnull LongFunction<MonthLayout> loader,
+                           @Nonnull DatePickerMetrics metrics) {
+        Key key = new Key(locale, chronology, firstEpochDay);
+        Entry entry = layouts.get(key);
+        if (entry != null) {
+            metrics.onLayoutCacheHit();
+            return entry.use(clock.get());
+        }
+
+        long start = System.nanoTime();
+        MonthLayout created = loader.apply(firstEpochDay);
+        metrics.onLayoutCacheMiss(System.nanoTime() - start);
+        entry = layouts.putIfAbsent(key, new Entry(created, clock.incrementAndGet()));
+        if (entry != null) {
+            return entry.use(clock.get());
+        }
+        evictIfFull();
+        return created;
+    }
+
+    /**
+     * Adds a layout, replacing any cached layout for the same locale and month.
+     *
+     * @param layout the layout
+     */
+    void put(@Nonnull MonthLayout layout) {
+        Key key = new Key(layout.getLocale(), layout.getChronology(), layout.getFirstEpochDay());
+        layouts.put(key, new Entry(layout, clock.incrementAndGet()));
+        evictIfFull();
+    }
+
+    /**
+     * @return a copy of the cached layouts, least recently used first
+     */
+    @Nonnull
+    List<MonthLayout> getLayouts() {
+        return layouts.values().stream()
+                .sorted(Comparator.comparingLong(Entry::getLastUsed))
+                .map(Entry::getLayout)
+                .collect(Collectors.toList());
+    }
+
+    public int size() {
+        return layouts.size();
+    }
+
+    public void clear() {
+        layouts.clear();
+    }
+
+    /**
+     * Drops the least recently used layouts until the cache is back to its maximum size.
+     *
+     * Only one thread evicts at a time; any other thread that overfills the cache meanwhile leaves it to that one,
+     * so the cache can briefly hold a few more layouts than its maximum size.
+     */
+    private void evictIfFull() {
+        while (layouts.size() > maximumSize && evictionLock.tryLock()) {
+            try {
+                int excess = layouts.size() - maximumSize;
+                if (excess <= 0) {
+                    return;
+                }
+                List<Map.Entry<Key, Entry>> entries = new ArrayList<>(layouts.entrySet());
+                entries.sort(Comparator.comparingLong(e -> e.getValue().getLastUsed()));
+                for (int i = 0; i < excess && i < entries.size(); i++) {
+                    Map.Entry<Key, Entry> eldest = entries.get(i);
+                    layouts.remove(eldest.getKey(), eldest.getValue());
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        @Getter
+        @Nonnull
+        private final MonthLayout layout;
+
+        @Getter
+        private volatile long lastUsed;
+
+        private Entry(@Nonnull MonthLayout layout, long lastUsed) {
+            this.layout = layout;
+            this.lastUsed = lastUsed;
+        }
+
+        @Nonnull
+        MonthLayout use(long now) {
+            // skip the write when it wouldn't change anything, so hot layouts aren't written on every hit
+            if (lastUsed != now) {
+                lastUsed = now;
+            }
+            return layout;
+        }
+
+    }
+
+    @Value
+    private static class Key {
+        Locale locale;
+        Chronology chronology;
+        long firstEpochDay;
+    }
+
+}
@@ -0,0 +1,243 @@
+package com.jtelegram.ext.datepicker.picker;
+
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonRow;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.chrono.ChronoLocalDate;
+import java.time.chrono.Chronology;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.annotation.Nonnull;
+
+/**
+ * Saves the layouts in a {@link MonthLayoutCache} to a compact binary snapshot, and loads them back,
+ * so a restarted bot can serve calendars without formatting any months.
+ *
+ * Labels are stored once in a string table and referenced by index, so a year of months for a locale
+ * takes a couple of kilobytes. Layouts are restored as-is, so snapshots written by a different Java version,
+ * whose locale data may differ, are ignored.
+ *
+ * Loading more layouts than the cache can hold keeps only the most recently used ones.
+ *
+ * @author Nick Robson
+ */
+public final class MonthLayoutSnapshot {
+
+    private static final int MAGIC = 0x4A54_4450; // "JTDP"
+    private static final int VERSION = 2;
+    // the most strings a snapshot's table is sized for up front, so a corrupt count can't allocate more than is read
+    private static final int MAX_INITIAL_STRINGS = 1024;
+
+    private MonthLayoutSnapshot() {}
+
+    /**
+     * Writes every layout in the cache to a file, replacing it.
+     *
+     * @param cache the cache
+     * @param path the file
+     * @return the number of layouts written
+     * @throws IOException if the file can't be written
+     */
+    public static int save(@Nonnull MonthLayoutCache cache, @Nonnull Path path) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            return write(cache, out);
+        }
+    }
+
+    /**
+     * Reads the layouts in a file into the cache.
+     *
+     * @param path the file
+     * @param cache the cache
+     * @return the number of layouts loaded, or 0 if the file was written by a different Java version
+     * @throws IOException if the file can't be read, or isn't a snapshot
+     */
+    public static int load(@Nonnull Path path, @Nonnull MonthLayoutCache cache) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            return read(in, cache);
+        }
+    }
+
+    /**
+     * Writes every layout in the cache to a stream, leaving it open.
+     *
+     * @param cache the cache
+     * @param out the stream
+     * @return the number of layouts written
+     * @throws IOException if the stream can't be written to
+     */
+    public static int write(@Nonnull MonthLayoutCache cache, @Nonnull OutputStream out) throws IOException {
+        // least recently used first, so reading them back in order keeps the same eviction order
+        List<MonthLayout> layouts = cache.getLayouts();
+
+        Map<String, Integer> indices = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (MonthLayout layout : layouts) {
+            intern(layout.getLocale().toLanguageTag(), indices, strings);
+            intern(layout.getChronology().getId(), indices, strings);
+            intern(layout.getTitle(), indices, strings);
+            for (String label : layout.getWeekdayLabels()) {
+                intern(label, indices, strings);
+            }
+            for (String label : layout.getDayLabels()) {
+                intern(label, indices, strings);
+            }
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeUTF(System.getProperty("java.version"));
+
+        writeVarInt(data, strings.size());
+        for (String string : strings) {
+            data.writeUTF(string);
+        }
+
+        writeVarInt(data, layouts.size());
+        for (MonthLayout layout : layouts) {
+            writeVarInt(data, indices.get(layout.getLocale().toLanguageTag()));
+            writeVarInt(data, indices.get(layout.getChronology().getId()));
+            data.writeLong(layout.getFirstEpochDay());
+            data.writeByte(layout.getLength());
+            data.writeByte(layout.getOffset());
+            writeVarInt(data, indices.get(layout.getTitle()));
+            for (String label : layout.getWeekdayLabels()) {
+                writeVarInt(data, indices.get(label));
+            }
+            for (String label : layout.getDayLabels()) {
+                writeVarInt(data, indices.get(label));
+            }
+        }
+        data.flush();
+        return layouts.size();
+    }
+
+    /**
+     * Reads the layouts in a stream into the cache, leaving the stream open.
+     *
+     * @param in the stream
+     * @param cache the cache
+     * @return the number of layouts loaded, or 0 if the snapshot was written by a different Java version
+     * @throws IOException if the stream can't be read, or isn't a snapshot
+     */
+    public static int read(@Nonnull InputStream in, @Nonnull MonthLayoutCache cache) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("not a month layout snapshot");
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported month layout snapshot version " + version);
+        }
+        if (!System.getProperty("java.version").equals(data.readUTF())) {
+            return 0;
+        }
+
+        int stringCount = readVarInt(data);
+        List<String> stringList = new ArrayList<>(Math.min(stringCount, MAX_INITIAL_STRINGS));
+        for (int i = 0; i < stringCount; i++) {
+            stringList.add(data.readUTF());
+        }
+        String[] strings = stringList.toArray(new String[0]);
+
+        // read everything before touching the cache, so a truncated snapshot doesn't load partially
+        int count = readVarInt(data);
+        List<MonthLayout> layouts = new ArrayList<>(Math.min(count, cache.getMaximumSize()));
+        Map<String, Locale> locales = new HashMap<>();
+        Map<String, Chronology> chronologies = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            Locale locale = locales.computeIfAbsent(readString(data, strings), Locale::forLanguageTag);
+            Chronology chronology;
+            ChronoLocalDate firstDay;
+            int length;
+            try {
+                chronology = chronologies.computeIfAbsent(readString(data, strings), Chronology::of);
+                firstDay = chronology.dateEpochDay(data.readLong());
+                length = data.readUnsignedByte();
+            } catch (RuntimeException ex) {
+                throw new IOException("corrupt month layout snapshot", ex);
+            }
+            int offset = data.readUnsignedByte();
+            String title = readString(data, strings);
+            String[] weekdayLabels = new String[MonthLayout.DAYS_IN_WEEK];
+            for (int j = 0; j < weekdayLabels.length; j++) {
+                weekdayLabels[j] = readString(data, strings);
+            }
+            String[] dayLabels = new String[length];
+            for (int j = 0; j < dayLabels.length; j++) {
+                dayLabels[j] = readString(data, strings);
+            }
+
+            MonthLayout layout;
+            try {
+                DatePickerButtonRow navigationRow = ChronologyDatePicker.createNavigationRow(firstDay);
+                layout = new MonthLayout(locale, chronology, LocalDate.from(firstDay), navigationRow, title, weekdayLabels, dayLabels, offset);
+            } catch (RuntimeException ex) {
+                throw new IOException("corrupt month layout snapshot", ex);
+            }
+            // only the most recently used layouts would survive in the cache anyway
+            if (count - i <= cache.getMaximumSize()) {
+                layouts.add(layout);
+            }
+        }
+
+        for (MonthLayout layout : layouts) {
+            cache.put(layout);
+        }
+        return layouts.size();
+    }
+
+    private static void intern(@Nonnull String string, @Nonnull Map<String, Integer> indices, @Nonnull List<String> strings) {
+        if (!indices.containsKey(string)) {
+            indices.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+
+    @Nonnull
+    private static String readString(@Nonnull DataInput in, @Nonnull String[] strings) throws IOException {
+        int index = readVarInt(in);
+        if (index >= strings.length) {
+            throw new IOException("corrupt month layout snapshot");
+        }
+        return strings[index];
+    }
+
+    private static void writeVarInt(@Nonnull DataOutput out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(@Nonnull DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IOException("corrupt month layout snapshot");
+    }
+
+}
@@ -0,0 +1,182 @@
+package com.jtelegram.ext.datepicker.state;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Everything needed to resume a {@link com.jtelegram.ext.datepicker.menu.DatePickerMenu} on another node,
+ * or after a restart, in a compact binary form.
+ *
+ * The state refers to its message by chat and message id, to its date picker by locale, and to its options by an
+ * id chosen by the bot, as options hold predicates that can't be serialized. Resuming a menu is then a matter of
+ * looking the options up by id, and building the menu with {@code DatePickerMenu.builder().state(state)}.
+ *
+ * Serialized states take around 30 bytes, most of them the locale and options id.
+ *
+ * @author Nick Robson
+ * @see MenuStateStore
+ */
+@Value
+public class DatePickerMenuState {
+
+    public enum View {
+        DAYS,
+        MONTH_GRID,
+        YEAR_GRID
+    }
+
+    private static final int VERSION = 1;
+    private static final View[] VIEWS = View.values();
+
+    long chatId;
+
+    long messageId;
+
+    @Nonnull
+    Locale locale;
+
+    @Nullable
+    String optionsId;
+
+    @Nonnull
+    LocalDate selectedDate;
+
+    // any date in the month on screen, or in the year of the month and year grids
+    @Nonnull
+    LocalDate visibleMonth;
+
+    @Nonnull
+    View view;
+
+    @Builder
+    protected DatePickerMenuState(long chatId,
+                                  long messageId,
+                                  @Nonnull Locale locale,
+                                  @Nullable String optionsId,
+                                  @Nonnull LocalDate selectedDate,
+                                  @Nullable LocalDate visibleMonth,
+                                  @Nullable View view) {
+        this.chatId = chatId;
+        this.messageId = messageId;
+        this.locale = locale;
+        this.optionsId = optionsId;
+        this.selectedDate = selectedDate;
+        this.visibleMonth = visibleMonth != null ? visibleMonth : selectedDate;
+        this.view = view != null ? view : View.DAYS;
+    }
+
+    /**
+     * @return the state in its binary form, as read by {@link #fromBytes(byte[])}
+     */
+    @Nonnull
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32);
+        out.write(VERSION);
+        out.write(view.ordinal());
+        writeVarLong(out, zigZag(chatId));
+        writeVarLong(out, zigZag(messageId));
+        writeVarLong(out, zigZag(selectedDate.toEpochDay()));
+        // the visible month is usually close to the selected date
+        writeVarLong(out, zigZag(visibleMonth.toEpochDay() - selectedDate.toEpochDay()));
+        writeString(out, locale.toLanguageTag());
+        writeString(out, optionsId);
+        return out.toByteArray();
+    }
+
+    /**
+     * @param bytes a state written by {@link #toBytes()}
+     * @return the state
+     * @throws IllegalArgumentException if the bytes aren't a state, or were written by a newer version
+     */
+    @Nonnull
+    public static DatePickerMenuState fromBytes(@Nonnull byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        try {
+            int version = in.get() & 0xff;
+            if (version != VERSION) {
+                throw new IllegalArgumentException("unsupported menu state version " + version);
+            }
+            int view = in.get() & 0xff;
+            if (view >= VIEWS.length) {
+                throw new IllegalArgumentException("corrupt menu state");
+            }
+            long chatId = unZigZag(readVarLong(in));
+            long messageId = unZigZag(readVarLong(in));
+            LocalDate selectedDate = LocalDate.ofEpochDay(unZigZag(readVarLong(in)));
+            LocalDate visibleMonth = selectedDate.plusDays(unZigZag(readVarLong(in)));
+            String locale = readString(in);
+            String optionsId = readString(in);
+            if (locale == null || in.hasRemaining()) {
+                throw new IllegalArgumentException("corrupt menu state");
+            }
+            return new DatePickerMenuState(chatId, messageId, Locale.forLanguageTag(locale), optionsId, selectedDate, visibleMonth, VIEWS[view]);
+        } catch (RuntimeException ex) {
+            if (ex instanceof IllegalArgumentException) {
+                throw ex;
+            }
+            // truncated, or dates out of range
+            throw new IllegalArgumentException("corrupt menu state", ex);
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(@Nonnull ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(@Nonnull ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.get() & 0xff;
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("corrupt menu state");
+    }
+
+    // the length is offset by one, so that 0 can stand for null
+    private static void writeString(@Nonnull ByteArrayOutputStream out, @Nullable String string) {
+        if (string == null) {
+            out.write(0);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    @Nullable
+    private static String readString(@Nonnull ByteBuffer in) {
+        long length = readVarLong(in) - 1;
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("corrupt menu state");
+        }
+        String string = new String(in.array(), in.arrayOffset() + in.position(), (int) length, StandardCharsets.UTF_8);
+        in.position(in.position() + (int) length);
+        return string;
+    }
+
+}
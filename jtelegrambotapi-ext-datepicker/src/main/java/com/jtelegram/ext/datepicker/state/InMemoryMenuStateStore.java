@@ -0,0 +1,52 @@
+package com.jtelegram.ext.datepicker.state;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import lombok.Value;
+
+/**
+ * A {@link MenuStateStore} holding states in memory, for tests and single-node bots.
+ *
+ * States are copied in and out, so callers can't change what's stored.
+ *
+ * @author Nick Robson
+ */
+public class InMemoryMenuStateStore implements MenuStateStore {
+
+    @Value
+    private static class MessageKey {
+        long chatId;
+        long messageId;
+    }
+
+    @Nonnull
+    private final ConcurrentMap<MessageKey, byte[]> states = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(long chatId, long messageId, @Nonnull byte[] state) {
+        states.put(new MessageKey(chatId, messageId), Objects.requireNonNull(state, "state cannot be null").clone());
+    }
+
+    @Nullable
+    @Override
+    public byte[] get(long chatId, long messageId) {
+        byte[] state = states.get(new MessageKey(chatId, messageId));
+        return state != null ? state.clone() : null;
+    }
+
+    @Override
+    public void remove(long chatId, long messageId) {
+        states.remove(new MessageKey(chatId, messageId));
+    }
+
+    /**
+     * @return the number of states stored
+     */
+    public int size() {
+        return states.size();
+    }
+
+}
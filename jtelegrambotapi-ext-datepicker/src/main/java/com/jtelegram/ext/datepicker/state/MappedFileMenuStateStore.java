@@ -0,0 +1,313 @@
+package com.jtelegram.ext.datepicker.state;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Objects;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A {@link MenuStateStore} keeping states in a memory-mapped file, so they survive a restart without a database.
+ *
+ * The file is a fixed-size hash table of slots, one state per slot, found by chat and message id. Writes go to the
+ * mapped memory, and reach the disk whenever the operating system writes them back, or on {@link #flush()}.
+ * The table doesn't grow: once every slot is taken, storing another state fails until some are removed.
+ *
+ * States that haven't been written for the store's TTL, i.e. menus nobody has clicked for that long, are treated as
+ * removed: they're no longer found, and their slots are reused. Slots are reclaimed as they're probed, or all at once
+ * through {@link #evictExpired()}, so the store only fills up with states that are still in use.
+ *
+ * This is a local stand-in for a shared store. It survives restarts, but is only safe to open from one process at a
+ * time, so bots running on several nodes need a {@link MenuStateStore} backed by something they all reach.
+ *
+ * @author Nick Robson
+ */
+public class MappedFileMenuStateStore implements MenuStateStore, AutoCloseable {
+
+    public static final int DEFAULT_SLOT_COUNT = 65_536;
+    public static final int DEFAULT_SLOT_SIZE = 128;
+    public static final Duration DEFAULT_TTL = Duration.ofDays(7);
+
+    private static final int MAGIC = 0x4A54_4D53; // "JTMS"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+
+    private static final byte EMPTY = 0;
+    private static final byte USED = 1;
+    // removed slots keep the probe sequence going, so states stored after them can still be found
+    private static final byte REMOVED = 2;
+
+    // status, length, chat id, message id, time written in epoch millis
+    private static final int SLOT_HEADER_SIZE = 1 + 2 + 8 + 8 + 8;
+
+    @Nonnull
+    private final FileChannel channel;
+
+    @Nonnull
+    private final MappedByteBuffer buffer;
+
+    @Getter
+    private final int slotCount;
+
+    @Getter
+    private final int slotSize;
+
+    @Getter
+    @Nonnull
+    private final Duration ttl;
+
+    private final long ttlMillis;
+
+    private int size;
+
+    private boolean closed;
+
+    /**
+     * Opens the store in a file, creating it if it doesn't exist. An existing file keeps the slots it was created with.
+     *
+     * @param path the file
+     * @param slotCount the number of states a new file can hold, {@value #DEFAULT_SLOT_COUNT} by default
+     * @param slotSize the size of each slot in a new file, {@value #DEFAULT_SLOT_SIZE} bytes by default,
+     *                 of which 27 hold the slot's key and when it was written
+     * @param ttl how long states are kept after they were last written, {@link #DEFAULT_TTL} by default
+     * @throws IOException if the file can't be opened, or isn't a state store
+     */
+    @Builder
+    protected MappedFileMenuStateStore(@Nonnull Path path, @Nullable Integer slotCount, @Nullable Integer slotSize, @Nullable Duration ttl) throws IOException {
+        if (ttl != null && (ttl.isNegative() || ttl.isZero())) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        if (slotCount != null && slotCount <= 0) {
+            throw new IllegalArgumentException("slotCount must be positive");
+        }
+        if (slotSize != null && (slotSize <= SLOT_HEADER_SIZE || slotSize > SLOT_HEADER_SIZE + 0xffff)) {
+            throw new IllegalArgumentException("slotSize must be between " + (SLOT_HEADER_SIZE + 1) + " and " + (SLOT_HEADER_SIZE + 0xffff));
+        }
+        Objects.requireNonNull(path, "path cannot be null");
+        this.ttl = ttl != null ? ttl : DEFAULT_TTL;
+        this.ttlMillis = this.ttl.toMillis();
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                this.slotCount = slotCount != null ? slotCount : DEFAULT_SLOT_COUNT;
+                this.slotSize = slotSize != null ? slotSize : DEFAULT_SLOT_SIZE;
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(this.slotCount, this.slotSize));
+                buffer.putInt(0, MAGIC);
+                buffer.put(4, (byte) VERSION);
+                buffer.putInt(8, this.slotSize);
+                buffer.putInt(12, this.slotCount);
+            } else {
+                if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("not a menu state store");
+                }
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                if (buffer.getInt(0) != MAGIC) {
+                    throw new IOException("not a menu state store");
+                }
+                if (buffer.get(4) != VERSION) {
+                    throw new IOException("unsupported menu state store version " + buffer.get(4));
+                }
+                this.slotSize = buffer.getInt(8);
+                this.slotCount = buffer.getInt(12);
+                if (this.slotSize <= SLOT_HEADER_SIZE || this.slotSize > SLOT_HEADER_SIZE + 0xffff || this.slotCount <= 0
+                        || channel.size() != HEADER_SIZE + (long) this.slotCount * this.slotSize) {
+                    throw new IOException("corrupt menu state store");
+                }
+                for (int slot = 0; slot < this.slotCount; slot++) {
+                    if (buffer.get(offset(slot)) == USED) {
+                        size++;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    // a single mapping is limited to 2GB
+    private static long fileSize(int slotCount, int slotSize) {
+        long fileSize = HEADER_SIZE + (long) slotCount * slotSize;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("slotCount * slotSize must be under 2GB");
+        }
+        return fileSize;
+    }
+
+    @Override
+    public synchronized void put(long chatId, long messageId, @Nonnull byte[] state) {
+        Objects.requireNonNull(state, "state cannot be null");
+        if (state.length > slotSize - SLOT_HEADER_SIZE) {
+            throw new IllegalArgumentException("state is " + state.length + " bytes, but slots only hold " + (slotSize - SLOT_HEADER_SIZE));
+        }
+        ensureOpen();
+
+        long now = System.currentTimeMillis();
+        int slot = find(chatId, messageId, true, now);
+        if (slot < 0) {
+            throw new IllegalStateException("menu state store is full");
+        }
+        int offset = offset(slot);
+        boolean added = buffer.get(offset) != USED;
+        buffer.putShort(offset + 1, (short) state.length);
+        buffer.putLong(offset + 3, chatId);
+        buffer.putLong(offset + 11, messageId);
+        buffer.putLong(offset + 19, now);
+        ByteBuffer data = buffer.duplicate();
+        data.position(offset + SLOT_HEADER_SIZE);
+        data.put(state);
+        // marked as used last, so a slot is never found with only part of its key
+        buffer.put(offset, USED);
+        if (added) {
+            size++;
+        }
+    }
+
+    @Nullable
+    @Override
+    public synchronized byte[] get(long chatId, long messageId) {
+        ensureOpen();
+        int slot = find(chatId, messageId, false, System.currentTimeMillis());
+        if (slot < 0) {
+            return null;
+        }
+        int offset = offset(slot);
+        byte[] state = new byte[buffer.getShort(offset + 1) & 0xffff];
+        ByteBuffer data = buffer.duplicate();
+        data.position(offset + SLOT_HEADER_SIZE);
+        data.get(state);
+        return state;
+    }
+
+    @Override
+    public synchronized void remove(long chatId, long messageId) {
+        ensureOpen();
+        int slot = find(chatId, messageId, false, System.currentTimeMillis());
+        if (slot >= 0) {
+            buffer.put(offset(slot), REMOVED);
+            size--;
+        }
+    }
+
+    /**
+     * Removes every state that hasn't been written within the TTL. States are also removed as they're found,
+     * so this is only needed to keep {@link #size()} accurate, e.g. when run periodically.
+     *
+     * @return the number of states removed
+     */
+    public synchronized int evictExpired() {
+        ensureOpen();
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (evictIfExpired(offset(slot), now)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @return the number of states stored, including expired ones that haven't been removed yet
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Writes any changes to the disk.
+     */
+    public synchronized void flush() {
+        ensureOpen();
+        buffer.force();
+    }
+
+    /**
+     * Writes any changes to the disk and closes the file. The mapping itself is released once the store is garbage
+     * collected.
+     *
+     * @throws IOException if the file can't be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("menu state store is closed");
+        }
+    }
+
+    /**
+     * Finds a message's slot by linear probing, removing expired states along the way.
+     *
+     * @param forWriting whether to return a free slot if the message has none
+     * @param now the current time in epoch millis
+     * @return the slot holding the message's state, or the first free slot on its probe sequence, or -1 if there's none
+     */
+    private int find(long chatId, long messageId, boolean forWriting, long now) {
+        int start = (int) Long.remainderUnsigned(hash(chatId, messageId), slotCount);
+        int free = -1;
+        for (int i = 0; i < slotCount; i++) {
+            int slot = start + i < slotCount ? start + i : start + i - slotCount;
+            int offset = offset(slot);
+            if (evictIfExpired(offset, now)) {
+                if (free < 0) {
+                    free = slot;
+                }
+                continue;
+            }
+            byte status = buffer.get(offset);
+            if (status == EMPTY) {
+                return forWriting ? (free >= 0 ? free : slot) : -1;
+            }
+            if (status == USED) {
+                if (buffer.getLong(offset + 3) == chatId && buffer.getLong(offset + 11) == messageId) {
+                    return slot;
+                }
+            } else if (free < 0) {
+                free = slot;
+            }
+        }
+        return forWriting ? free : -1;
+    }
+
+    /**
+     * @return true if the slot held a state that has expired, and has been marked as removed
+     */
+    private boolean evictIfExpired(int offset, long now) {
+        // written in the future means the clock went back, which isn't a reason to drop the state
+        if (buffer.get(offset) != USED || now - buffer.getLong(offset + 19) < ttlMillis) {
+            return false;
+        }
+        buffer.put(offset, REMOVED);
+        size--;
+        return true;
+    }
+
+    private int offset(int slot) {
+        return HEADER_SIZE + slot * slotSize;
+    }
+
+    // message ids are sequential per chat, so the bits are mixed to spread them over the table;
+    // package-private so tests can pick keys that collide
+    static long hash(long chatId, long messageId) {
+        long hash = chatId * 0x9E37_79B9_7F4A_7C15L + messageId;
+        hash = (hash ^ (hash >>> 33)) * 0xFF51_AFD7_ED55_8CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CE_B9FE_1A85_EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.jtelegram.ext.datepicker.state;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Holds the state of menus by message, so that a click can be handled by any node of a bot, not just the one that
+ * sent the menu.
+ *
+ * Stores only deal in bytes, so one can sit in front of anything that holds a small value by key, e.g. Redis or a
+ * database table. Menus write their state on every click that changes it, so stores should be quick to write to.
+ * Implementations must be thread-safe.
+ *
+ * Menus remove their state through {@link #remove(long, long)} when they're evicted from a
+ * {@code DatePickerMenuRegistry}, but menus built again on every click usually aren't tracked by one, so stores
+ * should also drop states that haven't been written for a while, e.g. with a TTL in Redis, as
+ * {@link MappedFileMenuStateStore} does.
+ *
+ * @author Nick Robson
+ * @see InMemoryMenuStateStore
+ * @see MappedFileMenuStateStore
+ */
+public interface MenuStateStore {
+
+    /**
+     * Stores the state of a message's menu, replacing any stored before.
+     *
+     * @param chatId the chat the message is in
+     * @param messageId the message
+     * @param state the serialized state
+     */
+    void put(long chatId, long messageId, @Nonnull byte[] state);
+
+    /**
+     * @param chatId the chat the message is in
+     * @param messageId the message
+     * @return the serialized state of the message's menu, or null if none is stored
+     */
+    @Nullable
+    byte[] get(long chatId, long messageId);
+
+    /**
+     * Forgets the state of a message's menu, e.g. once a date has been picked for good, or the menu has expired.
+     *
+     * @param chatId the chat the message is in
+     * @param messageId the message
+     */
+    void remove(long chatId, long messageId);
+
+    /**
+     * Stores a menu's state under the message it refers to.
+     *
+     * @param state the state
+     */
+    default void save(@Nonnull DatePickerMenuState state) {
+        put(state.getChatId(), state.getMessageId(), state.toBytes());
+    }
+
+    /**
+     * @param chatId the chat the message is in
+     * @param messageId the message
+     * @return the state of the message's menu, or null if none is stored
+     * @throws IllegalArgumentException if the stored state is corrupt
+     */
+    @Nullable
+    default DatePickerMenuState load(long chatId, long messageId) {
+        byte[] state = get(chatId, messageId);
+        return state != null ? DatePickerMenuState.fromBytes(state) : null;
+    }
+
+}
@@ -0,0 +1,223 @@
+package com.jtelegram.ext.datepicker;
+
+import com.jtelegram.api.TelegramBot;
+import com.jtelegram.api.TelegramBotRegistry;
+import com.jtelegram.api.menu.MenuRow;
+import com.jtelegram.api.update.PollingUpdateProvider;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallback;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallbackCodec;
+import com.jtelegram.ext.datepicker.callback.DatePickerCallbackDecoder;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButton;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonRow;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonType;
+import com.jtelegram.ext.datepicker.keyboard.DatePickerKeyboard;
+import com.jtelegram.ext.datepicker.keyboard.PackedDatePickerKeyboard;
+import com.jtelegram.ext.datepicker.menu.DatePickerMenu;
+import com.jtelegram.ext.datepicker.picker.DatePicker;
+import com.jtelegram.ext.datepicker.picker.DatePickerOptions;
+import com.sun.management.HotSpotDiagnosticMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+import javax.annotation.Nonnull;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the hot paths of the date picker stay within a fixed number of bytes allocated per operation,
+ * so a refactor can't quietly add garbage to every render or click.
+ *
+ * Each operation is warmed up, so the JIT has compiled it, and then measured with the thread allocation counters
+ * of the running JVM. Object sizes depend on the JVM, so the budgets were calibrated on OpenJDK 17 (HotSpot, x86-64,
+ * compressed oops), with some headroom over what the operations allocated there; a regression shows up as a whole
+ * object or array per button, which is far more. They're skipped on JVMs that can't count allocations per thread or
+ * don't compress oops, and can be skipped on purpose with {@code -Dallocation.budgets.skip}, e.g. on an unusual JVM.
+ * If a change makes an operation allocate less, lower its budget in the same change.
+ *
+ * @author Nick Robson
+ */
+public class AllocationBudgetsTest {
+
+    private static final int WARMUP_OPERATIONS = 50_000;
+    private static final int MEASURED_OPERATIONS = 20_000;
+
+    private static final LocalDate DATE = LocalDate.of(2018, 11, 12);
+    private static final long EPOCH_DAY = DATE.toEpochDay();
+
+    // results are published here, so the JIT can't optimize the allocations away
+    private static volatile Object sink;
+
+    private static com.sun.management.ThreadMXBean allocations;
+    private static DatePicker datePicker;
+    private static DatePickerOptions options;
+    private static DatePickerKeyboard keyboard;
+    private static PackedDatePickerKeyboard packedKeyboard;
+
+    @BeforeClass
+    public static void setUp() {
+        Assume.assumeFalse("allocation budgets skipped", Boolean.getBoolean("allocation.budgets.skip"));
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("this JVM can't count allocated bytes per thread",
+                threads instanceof com.sun.management.ThreadMXBean
+                        && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported());
+        HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+        Assume.assumeTrue("the budgets were calibrated with compressed oops",
+                hotSpot != null && Boolean.parseBoolean(hotSpot.getVMOption("UseCompressedOops").getValue()));
+
+        allocations = (com.sun.management.ThreadMXBean) threads;
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        datePicker = DatePickerExtension.forLocale(Locale.US);
+        options = DatePickerOptions.builder().dateHighlightedPredicate(DATE.plusDays(3)::isEqual).build();
+        keyboard = datePicker.toKeyboard(DATE, options);
+        packedKeyboard = datePicker.toPackedKeyboard(DATE, options);
+    }
+
+    // rendering a cached month only allocates its rows, or a single array of cells when packed
+
+    @Test
+    public void toKeyboard() {
+        assertWithinBudget("DatePicker#toKeyboard", 640, () -> datePicker.toKeyboard(DATE, options));
+    }
+
+    @Test
+    public void toPackedKeyboard() {
+        assertWithinBudget("DatePicker#toPackedKeyboard", 448, () -> datePicker.toPackedKeyboard(DATE, options));
+    }
+
+    // converting allocates the Telegram objects for every button, but no callback data, which is cached
+
+    @Test
+    public void toInlineLegacy() {
+        assertWithinBudget("DatePickerKeyboard#toInline(legacy)", 6_144, () -> keyboard.toInline(DatePickerCallbackCodec.legacy()));
+    }
+
+    @Test
+    public void toInlineCompact() {
+        assertWithinBudget("DatePickerKeyboard#toInline(compact)", 6_144, () -> keyboard.toInline(DatePickerCallbackCodec.compact()));
+    }
+
+    @Test
+    public void toJsonCompact() {
+        assertWithinBudget("PackedDatePickerKeyboard#toJson(compact)", 3_072, () -> packedKeyboard.toJson(DatePickerCallbackCodec.compact()));
+    }
+
+    // encoding allocates the string, decoding reuses the callback and allocates nothing at all
+
+    @Test
+    public void encodeLegacy() {
+        assertWithinBudget("DatePickerCallbackCodec#encode(legacy)", 256,
+                () -> DatePickerCallbackCodec.legacy().encode(DatePickerButtonType.SELECT_DATE, EPOCH_DAY, Locale.US));
+    }
+
+    @Test
+    public void encodeCompact() {
+        assertWithinBudget("DatePickerCallbackCodec#encode(compact)", 192,
+                () -> DatePickerCallbackCodec.compact().encode(DatePickerButtonType.SELECT_DATE, EPOCH_DAY, Locale.US));
+    }
+
+    @Test
+    public void decodeLegacy() {
+        String data = DatePickerCallbackCodec.legacy().encode(DatePickerButtonType.SELECT_DATE, EPOCH_DAY, Locale.US);
+        DatePickerCallback callback = new DatePickerCallback();
+        assertWithinBudget("DatePickerCallbackDecoder#decode(legacy)", 0, () -> DatePickerCallbackDecoder.decode(data, callback));
+    }
+
+    @Test
+    public void decodeCompact() {
+        String data = DatePickerCallbackCodec.compact().encode(DatePickerButtonType.SELECT_DATE, EPOCH_DAY, Locale.US);
+        DatePickerCallback callback = new DatePickerCallback();
+        assertWithinBudget("DatePickerCallbackDecoder#decode(compact)", 0, () -> DatePickerCallbackDecoder.decode(data, callback));
+    }
+
+    // re-rendering reuses the last rows, so an unchanged menu only renders its packed keyboard,
+    // and a click only wraps the two buttons whose highlight moved
+
+    @Test
+    public void menuGetRows() {
+        DatePickerMenu menu = menu();
+        assertWithinBudget("DatePickerMenu#getRows", 512, menu::getRows);
+    }
+
+    @Test
+    public void menuClick() {
+        DatePickerMenu menu = menu();
+        assertWithinBudget("DatePickerMenu click and re-render", 1_536, new ClickCycle(menu, keyboard, DATE, DATE.plusDays(1)));
+    }
+
+    @Nonnull
+    private static DatePickerMenu menu() {
+        // rendering never talks to Telegram, so the menu only needs a bot that was never registered or connected
+        TelegramBot bot = new TelegramBot(TelegramBotRegistry.builder().updateProvider(new PollingUpdateProvider()).build(), "allocation-budgets");
+        return DatePickerMenu.builder()
+                .bot(bot)
+                .datePicker(datePicker)
+                .datePickerOptions(options)
+                .selectedDate(DATE)
+                .build();
+    }
+
+    private static void assertWithinBudget(@Nonnull String name, long budget, @Nonnull Supplier<?> operation) {
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP_OPERATIONS; i++) {
+            sink = operation.get();
+        }
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_OPERATIONS; i++) {
+            sink = operation.get();
+        }
+        long bytesPerOperation = (allocations.getThreadAllocatedBytes(threadId) - before) / MEASURED_OPERATIONS;
+        assertTrue(name + " allocated " + bytesPerOperation + " B/op, over its budget of " + budget + " B/op", bytesPerOperation <= budget);
+    }
+
+    /**
+     * Clicks a day on the menu, alternating between two days so every click changes the selection,
+     * and renders the menu again, as the menus subsystem does to edit the message.
+     */
+    private static final class ClickCycle implements Supplier<List<MenuRow>> {
+
+        @Nonnull private final DatePickerMenu menu;
+        @Nonnull private final int[][] positions;
+        @Nonnull private List<MenuRow> rows;
+        private int clicks;
+
+        ClickCycle(@Nonnull DatePickerMenu menu, @Nonnull DatePickerKeyboard keyboard, @Nonnull LocalDate first, @Nonnull LocalDate second) {
+            this.menu = menu;
+            // the menu lays out its buttons like the keyboard of the same month
+            this.positions = new int[][] { find(keyboard, first), find(keyboard, second) };
+            this.rows = menu.getRows();
+        }
+
+        @Override
+        public List<MenuRow> get() {
+            int[] position = positions[clicks++ & 1];
+            // rendering never talks to Telegram, so the click doesn't need an event
+            rows.get(position[0]).getButtons().get(position[1]).onPress(null);
+            menu.getMenuMessage();
+            return rows = menu.getRows();
+        }
+
+        @Nonnull
+        private static int[] find(@Nonnull DatePickerKeyboard keyboard, @Nonnull LocalDate date) {
+            List<DatePickerButtonRow> rows = keyboard.getRows();
+            for (int row = 0; row < rows.size(); row++) {
+                List<DatePickerButton> buttons = rows.get(row).getButtons();
+                for (int column = 0; column < buttons.size(); column++) {
+                    if (buttons.get(column).getType() == DatePickerButtonType.SELECT_DATE && date.equals(buttons.get(column).getDate())) {
+                        return new int[] { row, column };
+                    }
+                }
+            }
+            throw new IllegalArgumentException("no button for " + date);
+        }
+
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.jtelegram.ext.datepicker.availability;
+
+import com.jtelegram.ext.datepicker.picker.DatePickerOptions;
+import com.jtelegram.ext.datepicker.picker.EpochDayRanges;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Nick Robson
+ */
+public class DateAvailabilityCacheTest {
+
+    private static final YearMonth MARCH = YearMonth.of(2024, 3);
+    private static final YearMonth APRIL = YearMonth.of(2024, 4);
+
+    private InMemoryDateAvailabilityProvider provider;
+
+    // while set, loads fail instead of reaching the in-memory provider
+    private final AtomicBoolean failing = new AtomicBoolean();
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @Before
+    public void createProvider() {
+        provider = new InMemoryDateAvailabilityProvider();
+    }
+
+    private DateAvailabilityCache.DateAvailabilityCacheBuilder cache() {
+        return DateAvailabilityCache.builder().provider(month -> {
+            attempts.incrementAndGet();
+            if (failing.get()) {
+                CompletableFuture<MonthAvailability> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new IllegalStateException("backend is down"));
+                return failed;
+            }
+            return provider.load(month);
+        });
+    }
+
+    @Test
+    public void loadsEachMonthOnceWithinTheTtl() {
+        MonthAvailability march = MonthAvailability.builder().month(MARCH).disabledDates(EpochDayRanges.between(MARCH.atDay(1), MARCH.atDay(3))).build();
+        provider.put(march);
+        DateAvailabilityCache cache = cache().build();
+
+        assertSame(march, cache.get(MARCH).join());
+        assertSame(march, cache.getNow(MARCH));
+        assertEquals(1, provider.getLoadCount());
+    }
+
+    @Test
+    public void reloadsOnceTheTtlHasPassed() throws InterruptedException {
+        DateAvailabilityCache cache = cache().ttl(Duration.ofMillis(50)).build();
+        cache.get(MARCH).join();
+        Thread.sleep(100);
+
+        assertNotNull(cache.getNow(MARCH));
+        assertEquals(2, provider.getLoadCount());
+    }
+
+    @Test
+    public void retriesFailuresOnceTheFailureTtlHasPassed() throws InterruptedException {
+        DateAvailabilityCache cache = cache().failureTtl(Duration.ofMillis(100)).build();
+        failing.set(true);
+
+        assertNull(cache.getNow(MARCH));
+        assertTrue(cache.get(MARCH).isCompletedExceptionally());
+        // within the failure TTL, renders don't reach the failing provider
+        assertNull(cache.getNow(MARCH));
+        assertEquals(1, attempts.get());
+
+        failing.set(false);
+        Thread.sleep(150);
+        assertNotNull(cache.getNow(MARCH));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void retriesEveryLookupWithoutAFailureTtl() {
+        DateAvailabilityCache cache = cache().failureTtl(Duration.ZERO).build();
+        failing.set(true);
+
+        cache.getNow(MARCH);
+        cache.getNow(MARCH);
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void keepsTheLastAvailabilityWhileReloadsFail() throws InterruptedException {
+        MonthAvailability march = MonthAvailability.builder().month(MARCH).disabledDates(EpochDayRanges.between(MARCH.atDay(1), MARCH.atDay(3))).build();
+        provider.put(march);
+        DateAvailabilityCache cache = cache().ttl(Duration.ofMillis(50)).failureTtl(Duration.ofMinutes(1)).build();
+        cache.get(MARCH).join();
+
+        failing.set(true);
+        Thread.sleep(100);
+        assertSame(march, cache.getNow(MARCH));
+        assertTrue(cache.get(MARCH).isCompletedExceptionally());
+        assertSame(march, cache.getNow(MARCH));
+    }
+
+    @Test
+    public void treatsThrowingProvidersAsFailures() {
+        DateAvailabilityCache cache = DateAvailabilityCache.builder().provider(month -> {
+            throw new IllegalStateException("backend is down");
+        }).build();
+
+        assertNull(cache.getNow(MARCH));
+        assertTrue(cache.get(MARCH).isCompletedExceptionally());
+    }
+
+    @Test
+    public void prefetchesAdjacentMonths() {
+        DateAvailabilityCache cache = cache().build();
+        cache.getNow(MARCH);
+        cache.prefetchAdjacent(MARCH);
+
+        assertEquals(3, provider.getLoadCount());
+        assertNotNull(cache.getNow(MARCH.minusMonths(1)));
+        assertNotNull(cache.getNow(MARCH.plusMonths(1)));
+        assertEquals(3, provider.getLoadCount());
+    }
+
+    @Test
+    public void dropsTheLeastRecentlyUsedMonth() {
+        DateAvailabilityCache cache = cache().maximumSize(2).build();
+        cache.getNow(MARCH);
+        cache.getNow(APRIL);
+        cache.getNow(MARCH);
+        cache.getNow(APRIL.plusMonths(1));
+
+        assertEquals(2, cache.size());
+        // April was dropped, so it loads again
+        cache.getNow(APRIL);
+        assertEquals(4, provider.getLoadCount());
+    }
+
+    @Test
+    public void reloadsInvalidatedMonths() {
+        DateAvailabilityCache cache = cache().build();
+        cache.getNow(MARCH);
+        cache.invalidate(MARCH);
+        cache.getNow(MARCH);
+
+        assertEquals(2, provider.getLoadCount());
+    }
+
+    @Test
+    public void onlyAppliesEachMonthToItsOwnDates() {
+        // a set shared between months, as MonthAvailability allows, spanning the end of March and start of April
+        LocalDate lastDaysOfMarch = MARCH.atDay(30);
+        LocalDate firstDaysOfApril = APRIL.atDay(2);
+        provider.put(MonthAvailability.builder().month(MARCH).disabledDates(EpochDayRanges.between(lastDaysOfMarch, firstDaysOfApril)).build());
+        DateAvailabilityCache cache = cache().build();
+        cache.get(MARCH.atDay(25), APRIL.atDay(5)).join();
+
+        DatePickerOptions options = cache.applyNow(DatePickerOptions.builder().build(), MARCH.atDay(25), APRIL.atDay(5));
+        assertTrue(options.isDateDisabled(lastDaysOfMarch));
+        assertTrue(options.isDateDisabled(MARCH.atEndOfMonth()));
+        // April's own availability is empty
+        assertFalse(options.isDateDisabled(APRIL.atDay(1)));
+        assertEquals(0b1100000, options.getDisabledDates().mask(MARCH.atDay(25).toEpochDay(), 12));
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.jtelegram.ext.datepicker.callback;
+
+import com.jtelegram.ext.datepicker.keyboard.DatePickerButtonType;
+import java.time.LocalDate;
+import java.util.Locale;
+import javax.annotation.Nonnull;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Nick Robson
+ */
+public class DatePickerCallbackCodecTest {
+
+    private static final LocalDate DATE = LocalDate.of(2018, 11, 12);
+
+    private static final Locale BUDDHIST = Locale.forLanguageTag("th-TH-u-ca-buddhist");
+
+    // too long to pack, so it's carried as a language tag, which alone takes the data past Telegram's limit
+    private static final Locale LONG_LOCALE = Locale.forLanguageTag("en-US-x-aaaaaaaa-bbbbbbbb-cccccccc-dddddddd-eeeeeeee-ffffffff");
+
+    private static final DatePickerButtonType[] NAVIGABLE_TYPES = {
+            DatePickerButtonType.SELECT_DATE,
+            DatePickerButtonType.GOTO_MONTH,
+            DatePickerButtonType.OPEN_MONTH_GRID,
+            DatePickerButtonType.OPEN_YEAR_GRID
+    };
+
+    @Nonnull
+    private static DatePickerCallback decode(@Nonnull String data) {
+        DatePickerCallback callback = new DatePickerCallback();
+        assertTrue(data, DatePickerCallbackDecoder.decode(data, callback));
+        return callback;
+    }
+
+    @Test
+    public void compactRoundTripsEveryButtonType() {
+        Locale[] locales = { Locale.US, Locale.JAPAN, Locale.forLanguageTag("pt-BR"), BUDDHIST };
+        LocalDate[] dates = { DATE, LocalDate.ofEpochDay(0), LocalDate.of(1900, 2, 28), LocalDate.of(9999, 12, 31) };
+        for (DatePickerButtonType type : NAVIGABLE_TYPES) {
+            for (Locale locale : locales) {
+                for (LocalDate date : dates) {
+                    DatePickerCallback callback = decode(DatePickerCallbackCodec.compact().encode(type, date.toEpochDay(), locale));
+                    assertEquals(type, callback.getType());
+                    assertEquals(date, callback.getDate());
+                    assertEquals(locale, callback.getLocale());
+                    assertFalse(callback.hasSelection());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void compactCarriesTheSelection() {
+        LocalDate selected = DATE.minusYears(3);
+        DatePickerCallback callback = decode(CompactCallbackCodec.INSTANCE.encode(DatePickerButtonType.GOTO_MONTH, DATE.toEpochDay(), Locale.US, selected.toEpochDay()));
+
+        assertEquals(DatePickerButtonType.GOTO_MONTH, callback.getType());
+        assertEquals(DATE, callback.getDate());
+        assertTrue(callback.hasSelection());
+        assertEquals(selected, callback.getSelectedDate());
+    }
+
+    @Test
+    public void compactCarriesUnpackableLocalesAsTags() {
+        Locale locale = Locale.forLanguageTag("en-US-x-lvariant-posix");
+        DatePickerCallback callback = decode(DatePickerCallbackCodec.compact().encode(DatePickerButtonType.SELECT_DATE, DATE.toEpochDay(), locale));
+
+        assertEquals(locale, callback.getLocale());
+    }
+
+    @Test
+    public void compactLabelsCarryNothing() {
+        DatePickerCallback callback = decode(DatePickerCallbackCodec.compact().encode(DatePickerButtonType.LABEL, DATE.toEpochDay(), Locale.US));
+
+        assertEquals(DatePickerButtonType.LABEL, callback.getType());
+        assertNull(callback.getLocale());
+    }
+
+    @Test
+    public void compactDataIsShort() {
+        for (DatePickerButtonType type : NAVIGABLE_TYPES) {
+            assertTrue(DatePickerCallbackCodec.compact().encode(type, DATE.toEpochDay(), Locale.US).length() <= 21);
+        }
+        // even the most distant dates, with a selection, stay well within the limit
+        String data = CompactCallbackCodec.INSTANCE.encode(DatePickerButtonType.SELECT_DATE, LocalDate.MIN.toEpochDay(), BUDDHIST, LocalDate.MAX.toEpochDay());
+        assertTrue(data, data.length() <= DatePickerCallbackCodec.MAX_CALLBACK_DATA_LENGTH);
+        assertEquals(LocalDate.MIN, decode(data).getDate());
+        assertEquals(LocalDate.MAX, decode(data).getSelectedDate());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compactRejectsDataOverTheLimit() {
+        DatePickerCallbackCodec.compact().encode(DatePickerButtonType.SELECT_DATE, DATE.toEpochDay(), LONG_LOCALE);
+    }
+
+    @Test
+    public void legacyKeepsItsFormat() {
+        assertEquals("ext:datepicker:2018:11:12|en-US", DatePickerCallbackCodec.legacy().encode(DatePickerButtonType.SELECT_DATE, DATE.toEpochDay(), Locale.US));
+        assertEquals("ext:datepicker:2018:11|en-US", DatePickerCallbackCodec.legacy().encode(DatePickerButtonType.GOTO_MONTH, DATE.toEpochDay(), Locale.US));
+        assertEquals("ext:datepicker:", DatePickerCallbackCodec.legacy().encode(DatePickerButtonType.LABEL, DATE.toEpochDay(), Locale.US));
+    }
+
+    @Test
+    public void legacyRoundTrips() {
+        DatePickerCallback callback = decode(DatePickerCallbackCodec.legacy().encode(DatePickerButtonType.SELECT_DATE, DATE.toEpochDay(), Locale.US));
+        assertEquals(DatePickerButtonType.SELECT_DATE, callback.getType());
+        assertEquals(DATE, callback.getDate());
+        assertEquals(Locale.US, callback.getLocale());
+
+        // months only carry their year and month
+        callback = decode(DatePickerCallbackCodec.legacy().encode(DatePickerButtonType.GOTO_MONTH, DATE.toEpochDay(), Locale.US));
+        assertEquals(DatePickerButtonType.GOTO_MONTH, callback.getType());
+        assertEquals(DATE.withDayOfMonth(1), callback.getDate());
+
+        // and grids only their year
+        callback = decode(DatePickerCallbackCodec.legacy().encode(DatePickerButtonType.OPEN_YEAR_GRID, DATE.toEpochDay(), Locale.US));
+        assertEquals(DatePickerButtonType.OPEN_YEAR_GRID, callback.getType());
+        assertEquals(DATE.withDayOfYear(1), callback.getDate());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void legacyRejectsMonthsOfOtherCalendars() {
+        DatePickerCallbackCodec.legacy().encode(DatePickerButtonType.GOTO_MONTH, DATE.toEpochDay(), BUDDHIST);
+    }
+
+    @Test
+    public void legacyAllowsDaysOfOtherCalendars() {
+        DatePickerCallback callback = decode(DatePickerCallbackCodec.legacy().encode(DatePickerButtonType.SELECT_DATE, DATE.toEpochDay(), BUDDHIST));
+
+        assertEquals(DATE, callback.getDate());
+        assertEquals(BUDDHIST, callback.getLocale());
+    }
+
+    @Test
+    public void picksTheLegacyCodecOnlyForIsoCalendars() {
+        assertSame(DatePickerCallbackCodec.legacy(), DatePickerCallbackCodec.forLocale(Locale.US));
+        assertSame(DatePickerCallbackCodec.legacy(), DatePickerCallbackCodec.forLocale(Locale.forLanguageTag("en-US-u-ca-iso8601")));
+        assertSame(DatePickerCallbackCodec.compact(), DatePickerCallbackCodec.forLocale(BUDDHIST));
+    }
+
+    @Test
+    public void rejectsOtherData() {
+        String[] invalid = {
+                "",
+                "ext:dp:",
+                "ext:dp:q",
+                "ext:dp:d",
+                "ext:dp:d!!",
+                "ext:datepicker:2018:13:1|en-US",
+                "ext:datepicker:2018:11:12:1|en-US",
+                "ext:datepicker:abc|en-US",
+                "something:else"
+        };
+        String valid = DatePickerCallbackCodec.compact().encode(DatePickerButtonType.SELECT_DATE, DATE.toEpochDay(), Locale.US);
+        DatePickerCallback callback = new DatePickerCallback();
+        for (String data : invalid) {
+            assertTrue(DatePickerCallbackDecoder.decode(valid, callback));
+            assertFalse(data, DatePickerCallbackDecoder.decode(data, callback));
+            // the holder is reset, so a failed decode can't be mistaken for the previous one
+            assertNull(data, callback.getType());
+        }
+        assertFalse(DatePickerCallbackDecoder.decode(null, callback));
+    }
+
+    @Test
+    public void recognizesBothFormats() {
+        assertTrue(DatePickerCallbackDecoder.isDatePickerCallback(DatePickerCallbackCodec.compact().encode(DatePickerButtonType.SELECT_DATE, DATE.toEpochDay(), Locale.US)));
+        assertTrue(DatePickerCallbackDecoder.isDatePickerCallback(DatePickerCallbackCodec.legacy().encode(DatePickerButtonType.SELECT_DATE, DATE.toEpochDay(), Locale.US)));
+        assertFalse(DatePickerCallbackDecoder.isDatePickerCallback("menu:1"));
+        assertFalse(DatePickerCallbackDecoder.isDatePickerCallback(null));
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.jtelegram.ext.datepicker.picker;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.stream.LongStream;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Nick Robson
+ */
+public class EpochDayRangesTest {
+
+    private static final long DAY = LocalDate.of(2024, 3, 1).toEpochDay();
+
+    @Test
+    public void masksRangesWithinTheWindow() {
+        EpochDayRanges ranges = EpochDayRanges.of(DAY + 2, DAY + 4, DAY + 10, DAY + 10);
+
+        assertEquals(0b100_0001_1100, ranges.mask(DAY, 31));
+        assertEquals(0b111, ranges.mask(DAY + 2, 3));
+        assertEquals(0, ranges.mask(DAY + 5, 5));
+    }
+
+    @Test
+    public void masksAFullWindow() {
+        EpochDayRanges ranges = EpochDayRanges.of(DAY - 100, DAY + 100);
+
+        assertEquals(-1, ranges.mask(DAY, EpochDaySet.MAX_MASK_LENGTH));
+        assertEquals(0x7fffffff, ranges.mask(DAY, EpochDaySet.MAX_MASK_LENGTH - 1));
+    }
+
+    @Test
+    public void masksRangesStraddlingTheWindow() {
+        EpochDayRanges ranges = EpochDayRanges.of(DAY - 5, DAY + 1, DAY + 30, DAY + 40);
+
+        assertEquals(0b11 | 0b11 << 30, ranges.mask(DAY, 32));
+        // a range covering the window from both sides fills it
+        assertEquals(0b1111, EpochDayRanges.of(DAY - 1, DAY + 4).mask(DAY, 4));
+    }
+
+    @Test
+    public void mergesOverlappingAndAdjacentRanges() {
+        // out of order, overlapping, adjacent and nested
+        EpochDayRanges ranges = EpochDayRanges.of(DAY + 6, DAY + 8, DAY, DAY + 3, DAY + 2, DAY + 5, DAY + 1, DAY + 1, DAY + 12, DAY + 12);
+
+        assertEquals(0b1_0001_1111_1111, ranges.mask(DAY, 16));
+        for (long epochDay = DAY; epochDay <= DAY + 8; epochDay++) {
+            assertTrue(ranges.contains(epochDay));
+        }
+        assertFalse(ranges.contains(DAY + 9));
+    }
+
+    @Test
+    public void containsItsBounds() {
+        EpochDayRanges ranges = EpochDayRanges.between(LocalDate.of(2024, 3, 10), LocalDate.of(2024, 3, 12));
+
+        assertFalse(ranges.contains(LocalDate.of(2024, 3, 9)));
+        assertTrue(ranges.contains(LocalDate.of(2024, 3, 10)));
+        assertTrue(ranges.contains(LocalDate.of(2024, 3, 12)));
+        assertFalse(ranges.contains(LocalDate.of(2024, 3, 13)));
+        assertFalse(EpochDayRanges.of().contains(DAY));
+    }
+
+    @Test
+    public void masksNothingForAnEmptyWindow() {
+        assertEquals(0, EpochDayRanges.of(DAY, DAY + 10).mask(DAY, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsLongWindows() {
+        EpochDayRanges.of(DAY, DAY).mask(DAY, EpochDaySet.MAX_MASK_LENGTH + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnpairedBounds() {
+        EpochDayRanges.of(DAY, DAY + 1, DAY + 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRangesEndingBeforeTheyStart() {
+        EpochDayRanges.of(DAY + 1, DAY);
+    }
+
+    @Test
+    public void agreesWithABitmapOfTheSameDays() {
+        Random random = new Random(42);
+        for (int set = 0; set < 100; set++) {
+            long[] bounds = new long[2 * (1 + random.nextInt(8))];
+            for (int i = 0; i < bounds.length; i += 2) {
+                bounds[i] = DAY + random.nextInt(120) - 60;
+                bounds[i + 1] = bounds[i] + random.nextInt(10);
+            }
+            EpochDayRanges ranges = EpochDayRanges.of(bounds);
+            EpochDayBitmap bitmap = EpochDayBitmap.of(LongStream.rangeClosed(DAY - 80, DAY + 80).filter(ranges::contains).toArray());
+
+            for (long first = DAY - 80; first <= DAY + 80; first++) {
+                assertEquals(bitmap.contains(first), ranges.contains(first));
+                int length = random.nextInt(EpochDaySet.MAX_MASK_LENGTH + 1);
+                assertEquals(bitmap.mask(first, length), ranges.mask(first, length));
+            }
+        }
+    }
+
+    @Test
+    public void clipsToARange() {
+        EpochDaySet within = EpochDaySet.within(EpochDayRanges.of(DAY - 10, DAY + 10), DAY, DAY + 3);
+
+        assertFalse(within.contains(DAY - 1));
+        assertTrue(within.contains(DAY));
+        assertTrue(within.contains(DAY + 3));
+        assertFalse(within.contains(DAY + 4));
+        assertEquals(0b1111 << 2, within.mask(DAY - 2, 32));
+        assertEquals(0b11, within.mask(DAY + 2, 5));
+        assertEquals(0, within.mask(DAY + 4, 32));
+        assertNull(EpochDaySet.within(null, DAY, DAY + 3));
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.jtelegram.ext.datepicker.state;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Locale;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Nick Robson
+ */
+public class DatePickerMenuStateTest {
+
+    private static final LocalDate SELECTED = LocalDate.of(2024, 3, 10);
+
+    @Test
+    public void roundTripsEveryField() {
+        DatePickerMenuState state = DatePickerMenuState.builder()
+                // group chats have negative ids
+                .chatId(-1001234567890L)
+                .messageId(42)
+                .locale(Locale.forLanguageTag("th-TH-u-ca-buddhist"))
+                .optionsId("booking")
+                .selectedDate(SELECTED)
+                .visibleMonth(LocalDate.of(1999, 1, 1))
+                .view(DatePickerMenuState.View.YEAR_GRID)
+                .build();
+
+        assertEquals(state, DatePickerMenuState.fromBytes(state.toBytes()));
+    }
+
+    @Test
+    public void roundTripsWithoutOptionsId() {
+        DatePickerMenuState state = DatePickerMenuState.builder().chatId(1).messageId(2).locale(Locale.US).selectedDate(SELECTED).build();
+
+        DatePickerMenuState read = DatePickerMenuState.fromBytes(state.toBytes());
+        assertEquals(state, read);
+        assertNull(read.getOptionsId());
+    }
+
+    @Test
+    public void defaultsToTheSelectedMonthAndDays() {
+        DatePickerMenuState state = DatePickerMenuState.builder().locale(Locale.US).selectedDate(SELECTED).build();
+
+        assertEquals(SELECTED, state.getVisibleMonth());
+        assertEquals(DatePickerMenuState.View.DAYS, state.getView());
+    }
+
+    @Test
+    public void isCompact() {
+        DatePickerMenuState state = DatePickerMenuState.builder()
+                .chatId(123456789)
+                .messageId(1000)
+                .locale(Locale.US)
+                .optionsId("default")
+                .selectedDate(SELECTED)
+                .build();
+
+        assertTrue(state.toBytes().length <= 32);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOtherVersions() {
+        byte[] bytes = DatePickerMenuState.builder().locale(Locale.US).selectedDate(SELECTED).build().toBytes();
+        bytes[0] = 99;
+        DatePickerMenuState.fromBytes(bytes);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownViews() {
+        byte[] bytes = DatePickerMenuState.builder().locale(Locale.US).selectedDate(SELECTED).build().toBytes();
+        bytes[1] = (byte) DatePickerMenuState.View.values().length;
+        DatePickerMenuState.fromBytes(bytes);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedStates() {
+        byte[] bytes = DatePickerMenuState.builder().locale(Locale.US).optionsId("default").selectedDate(SELECTED).build().toBytes();
+        DatePickerMenuState.fromBytes(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTrailingBytes() {
+        byte[] bytes = DatePickerMenuState.builder().locale(Locale.US).selectedDate(SELECTED).build().toBytes();
+        DatePickerMenuState.fromBytes(Arrays.copyOf(bytes, bytes.length + 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyStates() {
+        DatePickerMenuState.fromBytes(new byte[0]);
+    }
+
+}
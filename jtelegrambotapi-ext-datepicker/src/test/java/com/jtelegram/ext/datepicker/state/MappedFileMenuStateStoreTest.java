@@ -0,0 +1,185 @@
+package com.jtelegram.ext.datepicker.state;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Locale;
+import javax.annotation.Nonnull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Nick Robson
+ */
+public class MappedFileMenuStateStoreTest {
+
+    private static final long CHAT_ID = 1234;
+    private static final int SLOT_COUNT = 8;
+    private static final int SLOT_SIZE = 64;
+
+    private Path path;
+
+    @Before
+    public void createPath() throws IOException {
+        path = Files.createTempFile("menu-states", ".bin");
+        // the store creates the file itself, so it starts from an empty one
+        Files.delete(path);
+    }
+
+    @After
+    public void deletePath() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Nonnull
+    private MappedFileMenuStateStore open(@Nonnull Duration ttl) throws IOException {
+        return MappedFileMenuStateStore.builder().path(path).slotCount(SLOT_COUNT).slotSize(SLOT_SIZE).ttl(ttl).build();
+    }
+
+    @Test
+    public void storesAndRemovesStates() throws IOException {
+        try (MappedFileMenuStateStore store = open(MappedFileMenuStateStore.DEFAULT_TTL)) {
+            DatePickerMenuState state = DatePickerMenuState.builder()
+                    .chatId(CHAT_ID)
+                    .messageId(7)
+                    .locale(Locale.US)
+                    .optionsId("default")
+                    .selectedDate(LocalDate.of(2024, 3, 10))
+                    .build();
+            store.save(state);
+            assertEquals(state, store.load(CHAT_ID, 7));
+            assertEquals(1, store.size());
+
+            // storing again replaces, rather than adds
+            store.put(CHAT_ID, 7, new byte[] { 1, 2, 3 });
+            assertArrayEquals(new byte[] { 1, 2, 3 }, store.get(CHAT_ID, 7));
+            assertEquals(1, store.size());
+
+            store.remove(CHAT_ID, 7);
+            assertNull(store.get(CHAT_ID, 7));
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    public void probesPastTheEndOfTheTable() throws IOException {
+        // two messages whose probe sequences both start at the last slot, so the second wraps around to the first
+        long[] messageIds = messagesStartingAt(SLOT_COUNT - 1, 2);
+        try (MappedFileMenuStateStore store = open(MappedFileMenuStateStore.DEFAULT_TTL)) {
+            store.put(CHAT_ID, messageIds[0], new byte[] { 1 });
+            store.put(CHAT_ID, messageIds[1], new byte[] { 2 });
+            assertArrayEquals(new byte[] { 1 }, store.get(CHAT_ID, messageIds[0]));
+            assertArrayEquals(new byte[] { 2 }, store.get(CHAT_ID, messageIds[1]));
+
+            // the removed slot keeps the probe sequence going
+            store.remove(CHAT_ID, messageIds[0]);
+            assertNull(store.get(CHAT_ID, messageIds[0]));
+            assertArrayEquals(new byte[] { 2 }, store.get(CHAT_ID, messageIds[1]));
+        }
+    }
+
+    @Test
+    public void failsOnceFull() throws IOException {
+        try (MappedFileMenuStateStore store = open(MappedFileMenuStateStore.DEFAULT_TTL)) {
+            for (int messageId = 0; messageId < SLOT_COUNT; messageId++) {
+                store.put(CHAT_ID, messageId, new byte[] { (byte) messageId });
+            }
+            for (int messageId = 0; messageId < SLOT_COUNT; messageId++) {
+                assertArrayEquals(new byte[] { (byte) messageId }, store.get(CHAT_ID, messageId));
+            }
+            try {
+                store.put(CHAT_ID, SLOT_COUNT, new byte[] { 1 });
+                fail("stored more states than there are slots");
+            } catch (IllegalStateException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void reusesExpiredSlots() throws IOException, InterruptedException {
+        try (MappedFileMenuStateStore store = open(Duration.ofMillis(100))) {
+            for (int messageId = 0; messageId < SLOT_COUNT; messageId++) {
+                store.put(CHAT_ID, messageId, new byte[] { (byte) messageId });
+            }
+            Thread.sleep(200);
+
+            assertNull(store.get(CHAT_ID, 0));
+            // every slot has expired, so the store has room again
+            store.put(CHAT_ID, SLOT_COUNT, new byte[] { 1 });
+            assertArrayEquals(new byte[] { 1 }, store.get(CHAT_ID, SLOT_COUNT));
+
+            store.evictExpired();
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    public void keepsStatesAcrossReopening() throws IOException {
+        try (MappedFileMenuStateStore store = open(MappedFileMenuStateStore.DEFAULT_TTL)) {
+            store.put(CHAT_ID, 7, new byte[] { 1, 2, 3 });
+        }
+        // an existing file keeps its own slots, whatever the builder asks for
+        try (MappedFileMenuStateStore store = MappedFileMenuStateStore.builder().path(path).slotCount(SLOT_COUNT * 2).build()) {
+            assertEquals(SLOT_COUNT, store.getSlotCount());
+            assertEquals(SLOT_SIZE, store.getSlotSize());
+            assertEquals(1, store.size());
+            assertArrayEquals(new byte[] { 1, 2, 3 }, store.get(CHAT_ID, 7));
+        }
+    }
+
+    @Test
+    public void rejectsFilesOfOtherVersions() throws IOException {
+        try (MappedFileMenuStateStore store = open(MappedFileMenuStateStore.DEFAULT_TTL)) {
+            store.put(CHAT_ID, 7, new byte[] { 1 });
+        }
+        // the version is the byte after the magic number
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 1 }), 4);
+        }
+        try {
+            open(MappedFileMenuStateStore.DEFAULT_TTL).close();
+            fail("opened a store of another version");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("version 1"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        Files.write(path, "not a menu state store".getBytes(StandardCharsets.UTF_8));
+        open(MappedFileMenuStateStore.DEFAULT_TTL).close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsStatesLargerThanASlot() throws IOException {
+        try (MappedFileMenuStateStore store = open(MappedFileMenuStateStore.DEFAULT_TTL)) {
+            store.put(CHAT_ID, 7, new byte[SLOT_SIZE]);
+        }
+    }
+
+    @Nonnull
+    private static long[] messagesStartingAt(int slot, int count) {
+        long[] messageIds = new long[count];
+        int found = 0;
+        for (long messageId = 0; found < count; messageId++) {
+            if (Long.remainderUnsigned(MappedFileMenuStateStore.hash(CHAT_ID, messageId), SLOT_COUNT) == slot) {
+                messageIds[found++] = messageId;
+            }
+        }
+        return messageIds;
+    }
+
+}
@@ -0,0 +1,404 @@
+package com.jtelegram.ext.loadtest.datepicker;
+
+import com.jtelegram.api.TelegramBot;
+import com.jtelegram.api.TelegramBotRegistry;
+import com.jtelegram.api.chat.id.ChatId;
+import com.jtelegram.api.menu.SendMenu;
+import com.jtelegram.api.update.PollingUpdateProvider;
+import com.jtelegram.api.util.TextBuilder;
+import com.jtelegram.ext.datepicker.DatePickerExtension;
+import com.jtelegram.ext.datepicker.menu.DatePickerEditCoalescer;
+import com.jtelegram.ext.datepicker.menu.DatePickerMenu;
+import com.jtelegram.ext.datepicker.picker.DatePicker;
+import com.jtelegram.ext.datepicker.picker.DatePickerOptions;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nonnull;
+
+/**
+ * Drives simulated users through {@link DatePickerMenu} flows against a {@link FakeBotApiServer}, and reports how the
+ * date picker holds up.
+ *
+ * A bot is registered against the server, so its own client, update provider and menus subsystem are what's under
+ * load, along with the date picker. Each user has a calendar sent to them, moves forward a few months and selects a
+ * few dates. Clicks reach the bot as callback queries carrying the callback data it put on the buttons. Like a real
+ * user, they wait for the message to be edited after each click before clicking again, or for the click to be
+ * answered if it doesn't change the calendar. Users run concurrently on a fixed number of threads.
+ *
+ * The report covers throughput in clicks per second, the latency from a click to its edit reaching the server,
+ * the number of edits per click, which drops below one if clicks cost no edit, and the heap retained by the open
+ * calendars.
+ *
+ * Options, all optional:
+ * <pre>
+ * --users 5000         the number of users
+ * --concurrency 64     the number of users clicking at once
+ * --navigations 5      the months each user moves forward
+ * --selections 3       the dates each user selects
+ * --coalesce-ms 0      the edit coalescing window, or 0 for none
+ * --locale en-US       the locale of every calendar
+ * </pre>
+ *
+ * @author Nick Robson
+ */
+public final class DatePickerLoadTest {
+
+    private static final String NEXT_MONTH = "\u203A";
+    private static final String HIGHLIGHT_SUFFIX = "•";
+    private static final int FIRST_WEEK_ROW = 3;
+    private static final String TEXT = "Pick a date";
+    private static final String TOKEN = "loadtest";
+    private static final long TIMEOUT_MILLIS = 5_000;
+    private static final long EDIT_GRACE_MILLIS = 250;
+
+    private final int users;
+    private final int concurrency;
+    private final int navigations;
+    private final int selections;
+    private final int coalesceMillis;
+    @Nonnull private final Locale locale;
+
+    @Nonnull private final ConcurrentMap<Long, PendingClick> pendingClicks = new ConcurrentHashMap<>();
+    @Nonnull private final AtomicLong nextCallbackQueryId = new AtomicLong();
+    @Nonnull private final LongAdder clicks = new LongAdder();
+    @Nonnull private final LongAdder clicksWithoutEdit = new LongAdder();
+    @Nonnull private final LongAdder errors = new LongAdder();
+    @Nonnull private final AtomicInteger latencyCount = new AtomicInteger();
+    @Nonnull private final long[] latencies;
+    // sends coalesced edits and times out answered clicks, so it needs about as many threads as the server
+    @Nonnull private final ScheduledExecutorService scheduler;
+
+    private DatePickerLoadTest(int users, int concurrency, int navigations, int selections, int coalesceMillis, @Nonnull Locale locale) {
+        this.users = users;
+        this.concurrency = concurrency;
+        this.navigations = navigations;
+        this.selections = selections;
+        this.coalesceMillis = coalesceMillis;
+        this.locale = locale;
+        this.latencies = new long[users * (navigations + selections)];
+        this.scheduler = Executors.newScheduledThreadPool(Math.max(4, concurrency / 4));
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = 5_000;
+        int concurrency = 64;
+        int navigations = 5;
+        int selections = 3;
+        int coalesceMillis = 0;
+        Locale locale = Locale.US;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("missing value for " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--users":
+                    users = positive(args[i], value);
+                    break;
+                case "--concurrency":
+                    concurrency = positive(args[i], value);
+                    break;
+                case "--navigations":
+                    navigations = nonNegative(args[i], value);
+                    break;
+                case "--selections":
+                    selections = nonNegative(args[i], value);
+                    break;
+                case "--coalesce-ms":
+                    coalesceMillis = nonNegative(args[i], value);
+                    break;
+                case "--locale":
+                    locale = Locale.forLanguageTag(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        new DatePickerLoadTest(users, concurrency, navigations, selections, coalesceMillis, locale).run();
+        // the bot's update provider would otherwise keep polling the closed server
+        System.exit(0);
+    }
+
+    private static int positive(@Nonnull String option, @Nonnull String value) {
+        int parsed = Integer.parseInt(value);
+        if (parsed <= 0) {
+            throw new IllegalArgumentException(option + " must be positive");
+        }
+        return parsed;
+    }
+
+    private static int nonNegative(@Nonnull String option, @Nonnull String value) {
+        int parsed = Integer.parseInt(value);
+        if (parsed < 0) {
+            throw new IllegalArgumentException(option + " cannot be negative");
+        }
+        return parsed;
+    }
+
+    private void run() throws Exception {
+        ExecutorService userThreads = Executors.newFixedThreadPool(concurrency);
+        // one more thread than the rest, as the bot's long polling holds one
+        try (FakeBotApiServer server = new FakeBotApiServer(Math.max(4, concurrency / 4) + 1)) {
+            server.setEditListener(this::onEdit);
+            server.setAnswerListener(this::onAnswer);
+            TelegramBot bot = registerBot(server);
+            DatePicker datePicker = DatePickerExtension.forLocale(locale);
+            DatePickerOptions options = DatePickerOptions.builder().build();
+            DatePickerEditCoalescer coalescer = coalesceMillis > 0 ? new DatePickerEditCoalescer(scheduler, Duration.ofMillis(coalesceMillis)) : null;
+            LocalDate today = LocalDate.now();
+
+            MenuFactory factory = () -> DatePickerMenu.builder()
+                    .bot(bot)
+                    .datePicker(datePicker)
+                    .datePickerOptions(options)
+                    .selectedDate(today)
+                    .messageSupplier(() -> TextBuilder.create().plain(TEXT))
+                    .editCoalescer(coalescer)
+                    .errorHandler(this::onError)
+                    .asyncErrorHandler(this::onError)
+                    .build();
+
+            // warm up the picker, the bot and the HTTP connections, so the first users don't skew the latencies
+            int warmupUsers = Math.min(users, 200);
+            runUsers(server, bot, users + 1, warmupUsers, userThreads, factory);
+            reset(server);
+
+            long heapBefore = usedHeapAfterGc();
+            long start = System.nanoTime();
+            List<DatePickerMenu> menus = runUsers(server, bot, 1, users, userThreads, factory);
+            long elapsed = System.nanoTime() - start;
+            long heapAfter = usedHeapAfterGc();
+
+            report(server, elapsed, heapAfter - heapBefore, menus.size());
+        } finally {
+            userThreads.shutdownNow();
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Nonnull
+    private TelegramBot registerBot(@Nonnull FakeBotApiServer server) throws Exception {
+        TelegramBotRegistry registry = TelegramBotRegistry.builder()
+                .updateProvider(new PollingUpdateProvider())
+                .apiUrl(server.getApiUrl())
+                .build();
+        CompletableFuture<TelegramBot> registered = new CompletableFuture<>();
+        registry.registerBot(TOKEN, (bot, error) -> {
+            if (error != null) {
+                registered.completeExceptionally(error);
+            } else {
+                registered.complete(bot);
+            }
+        });
+        return registered.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private interface MenuFactory {
+        @Nonnull
+        DatePickerMenu create();
+    }
+
+    // the menus are returned, and so kept open, so the heap they retain can be measured
+    @Nonnull
+    private List<DatePickerMenu> runUsers(@Nonnull FakeBotApiServer server, @Nonnull TelegramBot bot, long firstChatId, int count,
+                                          @Nonnull ExecutorService threads, @Nonnull MenuFactory factory) throws Exception {
+        List<Future<DatePickerMenu>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long chatId = firstChatId + i;
+            futures.add(threads.submit(() -> simulateUser(server, bot, chatId, factory.create())));
+        }
+        List<DatePickerMenu> menus = new ArrayList<>(count);
+        for (Future<DatePickerMenu> future : futures) {
+            menus.add(future.get());
+        }
+        return menus;
+    }
+
+    @Nonnull
+    private DatePickerMenu simulateUser(@Nonnull FakeBotApiServer server, @Nonnull TelegramBot bot, long chatId,
+                                        @Nonnull DatePickerMenu menu) throws Exception {
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+        bot.perform(SendMenu.builder()
+                .chatId(ChatId.of(chatId))
+                .menu(menu)
+                .callback(message -> sent.complete(null))
+                .errorHandler(sent::completeExceptionally)
+                .build());
+        sent.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < navigations; i++) {
+            click(server, chatId, find(server.getKeyboard(chatId), NEXT_MONTH));
+        }
+        for (int i = 0; i < selections; i++) {
+            click(server, chatId, randomUnselectedDay(server.getKeyboard(chatId)));
+        }
+        server.forgetChat(chatId);
+        return menu;
+    }
+
+    /**
+     * Clicks a button through the server, and waits for the edit it causes to reach the server, or for the click to
+     * be answered without one.
+     */
+    private void click(@Nonnull FakeBotApiServer server, long chatId, @Nonnull int[] button) throws Exception {
+        PendingClick pending = new PendingClick(nextCallbackQueryId.incrementAndGet(), System.nanoTime());
+        pendingClicks.put(chatId, pending);
+        clicks.increment();
+
+        server.click(chatId, button[0], button[1], pending.callbackQueryId);
+        try {
+            if (!pending.edited.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                clicksWithoutEdit.increment();
+            }
+        } catch (TimeoutException ex) {
+            pendingClicks.remove(chatId, pending);
+            onError(new TimeoutException("click in chat " + chatId + " was neither answered nor edited"));
+        }
+    }
+
+    private void onEdit(long chatId) {
+        PendingClick pending = pendingClicks.remove(chatId);
+        if (pending != null) {
+            int index = latencyCount.getAndIncrement();
+            if (index < latencies.length) {
+                latencies[index] = System.nanoTime() - pending.clickedAt;
+            }
+            pending.edited.complete(true);
+        }
+    }
+
+    // the edit can follow the answer, by up to the coalescing window, so a click only goes without one after that
+    private void onAnswer(long chatId, long callbackQueryId) {
+        PendingClick pending = pendingClicks.get(chatId);
+        // the answer to an earlier click can arrive after its edit, once the user has clicked again
+        if (pending != null && pending.callbackQueryId == callbackQueryId) {
+            scheduler.schedule(() -> {
+                if (pendingClicks.remove(chatId, pending)) {
+                    pending.edited.complete(false);
+                }
+            }, coalesceMillis + EDIT_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void onError(@Nonnull Throwable ex) {
+        errors.increment();
+        if (errors.sum() <= 10) {
+            ex.printStackTrace();
+        }
+    }
+
+    private void reset(@Nonnull FakeBotApiServer server) {
+        pendingClicks.clear();
+        clicks.reset();
+        clicksWithoutEdit.reset();
+        errors.reset();
+        latencyCount.set(0);
+        server.resetCalls();
+    }
+
+    @Nonnull
+    private static int[] find(@Nonnull List<List<FakeBotApiServer.Button>> keyboard, @Nonnull String label) {
+        for (int row = 0; row < keyboard.size(); row++) {
+            List<FakeBotApiServer.Button> buttons = keyboard.get(row);
+            for (int column = 0; column < buttons.size(); column++) {
+                if (label.equals(buttons.get(column).getLabel())) {
+                    return new int[] { row, column };
+                }
+            }
+        }
+        throw new IllegalStateException("no " + label + " button");
+    }
+
+    // days are the labelled cells below the weekday headers, skipping highlighted ones
+    @Nonnull
+    private static int[] randomUnselectedDay(@Nonnull List<List<FakeBotApiServer.Button>> keyboard) {
+        List<int[]> days = new ArrayList<>(31);
+        for (int row = FIRST_WEEK_ROW; row < keyboard.size(); row++) {
+            List<FakeBotApiServer.Button> buttons = keyboard.get(row);
+            for (int column = 0; column < buttons.size(); column++) {
+                String label = buttons.get(column).getLabel();
+                if (!label.trim().isEmpty() && !label.endsWith(HIGHLIGHT_SUFFIX)) {
+                    days.add(new int[] { row, column });
+                }
+            }
+        }
+        return days.get(ThreadLocalRandom.current().nextInt(days.size()));
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private void report(@Nonnull FakeBotApiServer server, long elapsedNanos, long heapGrowth, int openMenus) {
+        long clickCount = clicks.sum();
+        long edits = server.getCalls("editMessageReplyMarkup") + server.getCalls("editMessageText");
+        int samples = Math.min(latencyCount.get(), latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+
+        System.out.printf("users                  %d (%d at once), locale %s%n", users, concurrency, locale.toLanguageTag());
+        System.out.printf("edit coalescing        %s%n", coalesceMillis > 0 ? coalesceMillis + " ms" : "off");
+        System.out.printf("clicks                 %d in %.2f s%n", clickCount, seconds);
+        System.out.printf("throughput             %.0f clicks/s%n", clickCount / seconds);
+        System.out.printf("edits                  %d (%.2f per click)%n", edits, clickCount > 0 ? (double) edits / clickCount : 0);
+        System.out.printf("click-to-edit p50      %.2f ms%n", percentile(sorted, 0.50));
+        System.out.printf("click-to-edit p99      %.2f ms%n", percentile(sorted, 0.99));
+        System.out.printf("click-to-edit max      %.2f ms%n", percentile(sorted, 1.00));
+        System.out.printf("clicks without edit    %d%n", clicksWithoutEdit.sum());
+        System.out.printf("errors                 %d%n", errors.sum());
+        System.out.printf("heap growth            %.1f MB (%d bytes per open calendar)%n",
+                heapGrowth / (1024.0 * 1024.0), openMenus > 0 ? heapGrowth / openMenus : 0);
+        for (Map.Entry<String, Long> call : server.getCalls().entrySet()) {
+            System.out.printf("api calls              %s: %d%n", call.getKey(), call.getValue());
+        }
+    }
+
+    private static double percentile(@Nonnull long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static final class PendingClick {
+
+        final long callbackQueryId;
+        final long clickedAt;
+        // true once edited, or false once answered without an edit
+        @Nonnull final CompletableFuture<Boolean> edited = new CompletableFuture<>();
+
+        PendingClick(long callbackQueryId, long clickedAt) {
+            this.callbackQueryId = callbackQueryId;
+            this.clickedAt = clickedAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,450 @@
+package com.jtelegram.ext.loadtest.datepicker;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A stand-in for the Telegram Bot API, served over HTTP on the loopback interface, so menus can be load tested
+ * without a bot token or a network.
+ *
+ * Point a bot at it with {@code TelegramBotRegistry.builder().apiUrl(server.getApiUrl())}, and the bot's own client
+ * sends its requests here. It answers the methods a calendar uses, i.e. sending a message, editing it and answering
+ * callback queries, from memory, counts every call by method, and tells listeners which chat each edit and answer
+ * was for. It also keeps the keyboard each chat was last sent, so that {@link #click(long, int, int, long)} can press one of
+ * its buttons: the click reaches the bot as a callback query through {@code getUpdates}, carrying whatever callback
+ * data the bot put on the button. Requests are only parsed as far as that needs; anything else is accepted as-is.
+ *
+ * @author Nick Robson
+ */
+public final class FakeBotApiServer implements AutoCloseable {
+
+    private static final Pattern CHAT_ID = Pattern.compile("\"chat_id\"\\s*:\\s*(-?\\d+)");
+    private static final Pattern MESSAGE_ID = Pattern.compile("\"message_id\"\\s*:\\s*(\\d+)");
+    private static final Pattern CALLBACK_QUERY_ID = Pattern.compile("\"callback_query_id\"\\s*:\\s*\"(\\d+)\"");
+    private static final Pattern OFFSET = Pattern.compile("\"?offset\"?\\s*[:=]\\s*(-?\\d+)");
+    private static final Pattern TIMEOUT = Pattern.compile("\"?timeout\"?\\s*[:=]\\s*(\\d+)");
+    private static final Pattern KEYBOARD = Pattern.compile("\"inline_keyboard\"\\s*:\\s*\\[");
+    private static final Pattern TEXT = Pattern.compile("\"text\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern CALLBACK_DATA = Pattern.compile("\"callback_data\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final long MAX_POLL_MILLIS = 1_000;
+    private static final int BACKLOG = 1024;
+
+    /**
+     * Hears of callback queries being answered.
+     */
+    public interface AnswerListener {
+
+        /**
+         * @param chatId the chat the query came from
+         * @param callbackQueryId the query, as passed to {@link #click(long, int, int, long)}
+         */
+        void onAnswered(long chatId, long callbackQueryId);
+
+    }
+
+    /**
+     * A button of a keyboard sent to a chat.
+     */
+    public static final class Button {
+
+        @Nonnull private final String label;
+        @Nullable private final String callbackData;
+
+        Button(@Nonnull String label, @Nullable String callbackData) {
+            this.label = label;
+            this.callbackData = callbackData;
+        }
+
+        /**
+         * @return the button's text
+         */
+        @Nonnull
+        public String getLabel() {
+            return label;
+        }
+
+    }
+
+    @Nonnull private final HttpServer server;
+    @Nonnull private final ExecutorService executor;
+    @Nonnull private final AtomicLong nextMessageId = new AtomicLong(1);
+    @Nonnull private final ConcurrentMap<String, LongAdder> calls = new ConcurrentHashMap<>();
+    @Nonnull private final ConcurrentMap<Long, Long> messageIds = new ConcurrentHashMap<>();
+    @Nonnull private final ConcurrentMap<Long, List<List<Button>>> keyboards = new ConcurrentHashMap<>();
+    @Nonnull private final ConcurrentMap<Long, Long> callbackQueryChats = new ConcurrentHashMap<>();
+    @Nonnull private final Deque<String> updates = new ArrayDeque<>();
+    private long nextUpdateId = 1;
+    @Nullable private volatile LongConsumer editListener;
+    @Nullable private volatile AnswerListener answerListener;
+
+    /**
+     * Starts the server on a free port.
+     *
+     * @param threads the number of threads serving requests, one of which is taken by the bot's long polling
+     * @throws IOException if the server can't be started
+     */
+    public FakeBotApiServer(int threads) throws IOException {
+        // otherwise responses, written as headers then body, wait out the client's delayed ACK, adding 40ms to every call
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        // the bot opens connections in bursts, and ones the default backlog can't hold are retried a second later
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), BACKLOG);
+        this.executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return the URL that the bot token and method are appended to, e.g. {@code http://127.0.0.1:1234/bot}, to be
+     *         passed to {@code TelegramBotRegistryBuilder#apiUrl}
+     */
+    @Nonnull
+    public String getApiUrl() {
+        return "http://" + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort() + "/bot";
+    }
+
+    /**
+     * @param editListener called with the chat id of every edit, on the server's threads
+     */
+    public void setEditListener(@Nullable LongConsumer editListener) {
+        this.editListener = editListener;
+    }
+
+    /**
+     * @param answerListener called for every answered callback query, on the server's threads
+     */
+    public void setAnswerListener(@Nullable AnswerListener answerListener) {
+        this.answerListener = answerListener;
+    }
+
+    /**
+     * @param chatId the chat
+     * @return the rows of the keyboard last sent to the chat, or an empty list if none has been
+     */
+    @Nonnull
+    public List<List<Button>> getKeyboard(long chatId) {
+        List<List<Button>> keyboard = keyboards.get(chatId);
+        return keyboard != null ? keyboard : Collections.emptyList();
+    }
+
+    /**
+     * Presses a button of the keyboard last sent to a chat, as its user would, by queueing a callback query for the
+     * bot's next {@code getUpdates}.
+     *
+     * @param chatId the chat, which is also the id of the user clicking
+     * @param row the row of the button
+     * @param column the column of the button
+     * @param callbackQueryId the id of the callback query, unique across clicks
+     * @throws IllegalArgumentException if there is no such button, or it has no callback data
+     */
+    public void click(long chatId, int row, int column, long callbackQueryId) {
+        List<List<Button>> keyboard = getKeyboard(chatId);
+        if (row < 0 || row >= keyboard.size() || column < 0 || column >= keyboard.get(row).size()) {
+            throw new IllegalArgumentException("no button at " + row + ":" + column + " in chat " + chatId);
+        }
+        Button button = keyboard.get(row).get(column);
+        if (button.callbackData == null) {
+            throw new IllegalArgumentException("button " + button.label + " has no callback data");
+        }
+        callbackQueryChats.put(callbackQueryId, chatId);
+        String user = "{\"id\":" + chatId + ",\"is_bot\":false,\"first_name\":\"User " + chatId + "\"}";
+        synchronized (updates) {
+            updates.addLast("{\"update_id\":" + nextUpdateId++
+                    + ",\"callback_query\":{\"id\":\"" + callbackQueryId + "\""
+                    + ",\"from\":" + user
+                    + ",\"message\":" + message(messageIds.getOrDefault(chatId, 0L), chatId)
+                    + ",\"chat_instance\":\"" + chatId + "\""
+                    + ",\"data\":" + quote(button.callbackData) + "}}");
+            updates.notifyAll();
+        }
+    }
+
+    /**
+     * Forgets the message and keyboard sent to a chat, e.g. once its user is done, so they don't count towards the
+     * heap used by the bot.
+     *
+     * @param chatId the chat
+     */
+    public void forgetChat(long chatId) {
+        messageIds.remove(chatId);
+        keyboards.remove(chatId);
+    }
+
+    /**
+     * @return the number of calls to each method so far, sorted by method
+     */
+    @Nonnull
+    public Map<String, Long> getCalls() {
+        Map<String, Long> counts = new TreeMap<>();
+        calls.forEach((method, count) -> counts.put(method, count.sum()));
+        return counts;
+    }
+
+    /**
+     * @param method the method, e.g. {@code editMessageReplyMarkup}
+     * @return the number of calls to the method so far
+     */
+    public long getCalls(@Nonnull String method) {
+        LongAdder count = calls.get(method);
+        return count != null ? count.sum() : 0;
+    }
+
+    /**
+     * Forgets the calls so far, e.g. after warming up.
+     */
+    public void resetCalls() {
+        calls.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(@Nonnull HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = path.substring(path.lastIndexOf('/') + 1);
+            String body = read(exchange.getRequestBody());
+            String query = exchange.getRequestURI().getQuery();
+            if (query != null) {
+                body = body + "&" + query;
+            }
+            calls.computeIfAbsent(method, k -> new LongAdder()).increment();
+
+            long chatId = find(CHAT_ID, body, 0);
+            switch (method) {
+                case "getMe":
+                    respond(exchange, 200, ok("{\"id\":1,\"is_bot\":true,\"first_name\":\"Load Test\",\"username\":\"loadtest_bot\"}"));
+                    break;
+                case "getUpdates":
+                    respond(exchange, 200, ok(poll(find(OFFSET, body, 0), find(TIMEOUT, body, 0))));
+                    break;
+                case "sendMessage": {
+                    long messageId = nextMessageId.getAndIncrement();
+                    messageIds.put(chatId, messageId);
+                    recordKeyboard(chatId, body);
+                    respond(exchange, 200, ok(message(messageId, chatId)));
+                    break;
+                }
+                case "editMessageText":
+                case "editMessageReplyMarkup": {
+                    // recorded before the listener hears of it, as the user can click again as soon as it does
+                    recordKeyboard(chatId, body);
+                    LongConsumer listener = editListener;
+                    if (listener != null) {
+                        listener.accept(chatId);
+                    }
+                    respond(exchange, 200, ok(message(find(MESSAGE_ID, body, 0), chatId)));
+                    break;
+                }
+                case "answerCallbackQuery": {
+                    long callbackQueryId = find(CALLBACK_QUERY_ID, body, 0);
+                    Long answeredChat = callbackQueryChats.remove(callbackQueryId);
+                    AnswerListener listener = answerListener;
+                    if (answeredChat != null && listener != null) {
+                        listener.onAnswered(answeredChat, callbackQueryId);
+                    }
+                    respond(exchange, 200, ok("true"));
+                    break;
+                }
+                default:
+                    respond(exchange, 404, "{\"ok\":false,\"error_code\":404,\"description\":\"Not Found: method not found\"}");
+                    break;
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // long polling: waits for updates at or after the offset, dropping those before it as the bot has seen them
+    @Nonnull
+    private String poll(long offset, long timeoutSeconds) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.min(TimeUnit.SECONDS.toMillis(timeoutSeconds), MAX_POLL_MILLIS));
+        synchronized (updates) {
+            long firstId = nextUpdateId - updates.size();
+            for (; firstId < offset && !updates.isEmpty(); firstId++) {
+                updates.removeFirst();
+            }
+            try {
+                long remaining;
+                while (updates.isEmpty() && (remaining = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(updates, remaining);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return "[" + String.join(",", updates) + "]";
+        }
+    }
+
+    private void recordKeyboard(long chatId, @Nonnull String body) {
+        Matcher keyboard = KEYBOARD.matcher(body);
+        if (!keyboard.find()) {
+            return;
+        }
+        List<List<Button>> rows = new ArrayList<>();
+        List<Button> row = null;
+        int depth = 1;
+        // walks the nested arrays of button objects, which hold no brackets outside of their strings
+        for (int i = keyboard.end(); i < body.length() && depth > 0; i++) {
+            char c = body.charAt(i);
+            if (c == '[') {
+                depth++;
+                row = new ArrayList<>();
+            } else if (c == ']') {
+                depth--;
+                if (row != null) {
+                    rows.add(row);
+                    row = null;
+                }
+            } else if (c == '{' && row != null) {
+                int end = endOfObject(body, i);
+                String button = body.substring(i, end);
+                Matcher text = TEXT.matcher(button);
+                Matcher data = CALLBACK_DATA.matcher(button);
+                row.add(new Button(text.find() ? unquote(text.group(1)) : "", data.find() ? unquote(data.group(1)) : null));
+                i = end - 1;
+            }
+        }
+        keyboards.put(chatId, rows);
+    }
+
+    private static int endOfObject(@Nonnull String json, int start) {
+        boolean inString = false;
+        for (int i = start; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '}') {
+                return i + 1;
+            }
+        }
+        return json.length();
+    }
+
+    private static long find(@Nonnull Pattern pattern, @Nonnull String body, long fallback) {
+        Matcher matcher = pattern.matcher(body);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : fallback;
+    }
+
+    @Nonnull
+    private static String ok(@Nonnull String result) {
+        return "{\"ok\":true,\"result\":" + result + "}";
+    }
+
+    @Nonnull
+    private static String message(long messageId, long chatId) {
+        return "{\"message_id\":" + messageId + ",\"date\":0,\"chat\":{\"id\":" + chatId + ",\"type\":\"private\"}}";
+    }
+
+    @Nonnull
+    private static String quote(@Nonnull String text) {
+        StringBuilder json = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    @Nonnull
+    private static String unquote(@Nonnull String json) {
+        if (json.indexOf('\\') < 0) {
+            return json;
+        }
+        StringBuilder text = new StringBuilder(json.length());
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c != '\\' || i + 1 == json.length()) {
+                text.append(c);
+                continue;
+            }
+            char escaped = json.charAt(++i);
+            switch (escaped) {
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                case 'b':
+                    text.append('\b');
+                    break;
+                case 'f':
+                    text.append('\f');
+                    break;
+                case 'u':
+                    text.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                default:
+                    text.append(escaped);
+                    break;
+            }
+        }
+        return text.toString();
+    }
+
+    private static void respond(@Nonnull HttpExchange exchange, int status, @Nonnull String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Nonnull
+    private static String read(@Nonnull InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int read; (read = in.read(buffer)) != -1; ) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}